@@ -18,6 +18,7 @@ package com.bytabit.app;
 
 import com.bytabit.app.core.badge.manager.BadgeManager;
 import com.bytabit.app.core.common.AppConfig;
+import com.bytabit.app.core.common.net.NetModule;
 import com.bytabit.app.core.offer.manager.OfferManager;
 import com.bytabit.app.core.payment.manager.PaymentDetailsManager;
 import com.bytabit.app.core.trade.manager.TradeManager;
@@ -31,7 +32,7 @@ import javax.inject.Singleton;
 import dagger.BindsInstance;
 import dagger.Component;
 
-@Component
+@Component(modules = NetModule.class)
 @Singleton
 public interface ApplicationComponent {
 
@@ -20,6 +20,7 @@ import com.bytabit.app.core.badge.model.Badge;
 import com.bytabit.app.core.badge.model.BadgeRequest;
 import com.bytabit.app.core.common.AppConfig;
 import com.bytabit.app.core.common.net.RetrofitService;
+import com.google.gson.Gson;
 
 import java.util.List;
 
@@ -28,6 +29,7 @@ import javax.inject.Singleton;
 
 import io.reactivex.Single;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
 
 @Slf4j
 @Singleton
@@ -36,8 +38,8 @@ public class BadgeService extends RetrofitService {
     private final BadgeServiceApi badgeServiceApi;
 
     @Inject
-    public BadgeService(AppConfig appConfig) {
-        super(appConfig);
+    public BadgeService(AppConfig appConfig, OkHttpClient httpClient, Gson gson) {
+        super(appConfig, httpClient, gson);
 
         // create an instance of the ApiService
         badgeServiceApi = retrofit.create(BadgeServiceApi.class);
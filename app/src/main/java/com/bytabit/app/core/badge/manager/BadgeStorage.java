@@ -30,4 +30,9 @@ public class BadgeStorage extends EntityFileStorage<Badge> {
     public BadgeStorage(AppConfig appConfig) {
         super(appConfig, Badge.class);
     }
+
+    @Override
+    protected Badge copy(Badge badge) {
+        return badge.copyBuilder().build();
+    }
 }
@@ -16,7 +16,9 @@
 
 package com.bytabit.app.core.badge.model;
 
+import com.bytabit.app.core.common.CachedHash;
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 import com.bytabit.app.core.common.file.Entity;
 import com.bytabit.app.core.payment.model.CurrencyCode;
 import com.bytabit.app.core.payment.model.PaymentMethod;
@@ -27,9 +29,11 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Date;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.ToString;
@@ -84,10 +88,35 @@ public class Badge implements Entity {
 
     private String detailsHash;
 
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient CachedHash cachedHash = new CachedHash();
+
+    public Badge.BadgeBuilder copyBuilder() {
+
+        return Badge.builder()
+                .id(this.id)
+                .profilePubKey(this.profilePubKey)
+                .badgeType(this.badgeType)
+                .validFrom(this.validFrom)
+                .validTo(this.validTo)
+                .currencyCode(this.currencyCode)
+                .paymentMethod(this.paymentMethod)
+                .detailsHash(this.detailsHash);
+    }
+
     public Sha256Hash sha256Hash() {
 
-        return HashUtils.sha256Hash(
-                profilePubKey, badgeType, validFrom, validTo, currencyCode,
-                paymentMethod, detailsHash);
+        try (Sha256Hasher hasher = HashUtils.hasher()) {
+            return hasher
+                    .put(profilePubKey)
+                    .put(badgeType)
+                    .put(validFrom, cachedHash)
+                    .put(validTo, cachedHash)
+                    .put(currencyCode)
+                    .put(paymentMethod)
+                    .put(detailsHash)
+                    .hash();
+        }
     }
 }
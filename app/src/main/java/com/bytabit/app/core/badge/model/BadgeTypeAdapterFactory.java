@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.badge.model;
+
+import com.bytabit.app.core.common.json.ObjectTypeAdapter;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+
+public class BadgeTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Badge.class) {
+            return (TypeAdapter<T>) new BadgeTypeAdapter(gson.getAdapter(Date.class));
+        } else if (rawType == BadgeRequest.class) {
+            return (TypeAdapter<T>) new BadgeRequestTypeAdapter(gson);
+        }
+        return null;
+    }
+
+    private static class BadgeTypeAdapter extends ObjectTypeAdapter<Badge> {
+
+        private final TypeAdapter<Date> dateAdapter;
+
+        private BadgeTypeAdapter(TypeAdapter<Date> dateAdapter) {
+            this.dateAdapter = dateAdapter;
+        }
+
+        @Override
+        protected Badge newInstance() {
+            return new Badge();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, Badge badge) throws IOException {
+            write(out, "id", badge.getId());
+            write(out, "profilePubKey", badge.getProfilePubKey());
+            write(out, "badgeType", badge.getBadgeType());
+            if (badge.getValidFrom() != null) {
+                dateAdapter.write(out.name("validFrom"), badge.getValidFrom());
+            }
+            if (badge.getValidTo() != null) {
+                dateAdapter.write(out.name("validTo"), badge.getValidTo());
+            }
+            write(out, "currencyCode", badge.getCurrencyCode());
+            write(out, "paymentMethod", badge.getPaymentMethod());
+            write(out, "detailsHash", badge.getDetailsHash());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, Badge badge) throws IOException {
+            switch (name) {
+                case "id":
+                    badge.setId(in.nextString());
+                    return true;
+                case "profilePubKey":
+                    badge.setProfilePubKey(in.nextString());
+                    return true;
+                case "badgeType":
+                    readEnum(in, Badge.BadgeType.class, badge::setBadgeType);
+                    return true;
+                case "validFrom":
+                    badge.setValidFrom(dateAdapter.read(in));
+                    return true;
+                case "validTo":
+                    badge.setValidTo(dateAdapter.read(in));
+                    return true;
+                case "currencyCode":
+                    readEnum(in, CurrencyCode.class, badge::setCurrencyCode);
+                    return true;
+                case "paymentMethod":
+                    readEnum(in, PaymentMethod.class, badge::setPaymentMethod);
+                    return true;
+                case "detailsHash":
+                    badge.setDetailsHash(in.nextString());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class BadgeRequestTypeAdapter extends ObjectTypeAdapter<BadgeRequest> {
+
+        private final Gson gson;
+
+        private BadgeRequestTypeAdapter(Gson gson) {
+            this.gson = gson;
+        }
+
+        @Override
+        protected BadgeRequest newInstance() {
+            return new BadgeRequest();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, BadgeRequest badgeRequest) throws IOException {
+            write(gson, out, "badge", badgeRequest.getBadge());
+            write(out, "btcAmount", badgeRequest.getBtcAmount());
+            write(out, "transactionHash", badgeRequest.getTransactionHash());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, BadgeRequest badgeRequest) throws IOException {
+            switch (name) {
+                case "badge":
+                    badgeRequest.setBadge(gson.getAdapter(Badge.class).read(in));
+                    return true;
+                case "btcAmount":
+                    badgeRequest.setBtcAmount(readDecimal(in));
+                    return true;
+                case "transactionHash":
+                    badgeRequest.setTransactionHash(in.nextString());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
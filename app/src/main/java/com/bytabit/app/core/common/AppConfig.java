@@ -41,15 +41,30 @@ public class AppConfig {
 
     private final String peerPort;
 
+    // the server accepts gzip compressed request bodies
+    private final boolean gzipRequests;
+
+    // trades are sent binary encoded, only enable once peers decode binary trades
+    private final boolean binaryTrades;
+
     public AppConfig(File privateStorage, String version, String btcNetwork,
                      String configName, String baseUrl, String peerAddress, String peerPort) {
 
+        this(privateStorage, version, btcNetwork, configName, baseUrl, peerAddress, peerPort, false, false);
+    }
+
+    public AppConfig(File privateStorage, String version, String btcNetwork,
+                     String configName, String baseUrl, String peerAddress, String peerPort,
+                     boolean gzipRequests, boolean binaryTrades) {
+
         this.version = version;
         this.btcNetwork = btcNetwork;
         this.configName = configName;
         this.baseUrl = baseUrl;
         this.peerAddress = peerAddress.equals("null") ? null : peerAddress;
         this.peerPort = peerPort.equals("null") ? null : peerPort;
+        this.gzipRequests = gzipRequests;
+        this.binaryTrades = binaryTrades;
 
         appStorage = new File(privateStorage.getPath() + File.separator + getBtcNetwork() + File.separator + getConfigName());
         if (!privateStorage.exists() && !privateStorage.mkdirs()) {
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bytabit.app.core.common;
+
+import org.bitcoinj.core.Sha256Hash;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the last hash computed for an object's hashed properties, owners clear it when one of those properties
+ * is set. Hashes that also depend on an outside value, like a scale, are stored with that value as their key.
+ * The property hashes of date and decimal values are kept by value so they aren't encoded again when the hash is.
+ */
+public class CachedHash {
+
+    // a few per owner, more only if its values keep changing
+    private static final int MAX_ENCODINGS = 8;
+
+    private volatile Entry entry;
+
+    private final Map<Object, byte[]> encodings = new HashMap<>();
+
+    public Sha256Hash get() {
+        return get(null);
+    }
+
+    public Sha256Hash get(Object key) {
+        Entry e = entry;
+        if (e != null && (e.key == null ? key == null : e.key.equals(key))) {
+            return e.hash;
+        }
+        return null;
+    }
+
+    public Sha256Hash set(Sha256Hash hash) {
+        return set(null, hash);
+    }
+
+    public Sha256Hash set(Object key, Sha256Hash hash) {
+        entry = new Entry(key, hash);
+        return hash;
+    }
+
+    public void clear() {
+        entry = null;
+    }
+
+    synchronized byte[] getEncoding(Object value) {
+        return encodings.get(value);
+    }
+
+    synchronized void setEncoding(Object value, byte[] encoding) {
+        if (encodings.size() >= MAX_ENCODINGS) {
+            encodings.clear();
+        }
+        encodings.put(value, encoding);
+    }
+
+    private static class Entry {
+
+        private final Object key;
+        private final Sha256Hash hash;
+
+        private Entry(Object key, Sha256Hash hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+    }
+}
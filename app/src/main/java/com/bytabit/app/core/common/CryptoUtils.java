@@ -50,9 +50,20 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class CryptoUtils {
 
+    private static final String CIPHER_TRANSFORMATION = "ECIES";
+
+    private static final int MAX_CACHED_KEYS = 64;
+
     private final ECParameterSpec spec;
     private final KeyFactory keyFactory;
 
+    // ciphers are re-initialized for each message but not thread safe, so each thread gets its own
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+
+    // converted keys by ECKey pub key bytes
+    private final LruCache<ByteBuffer, PublicKey> publicKeys = new LruCache<>(MAX_CACHED_KEYS);
+    private final LruCache<ByteBuffer, PrivateKey> privateKeys = new LruCache<>(MAX_CACHED_KEYS);
+
     @Inject
     public CryptoUtils() throws CryptoUtilsException {
 
@@ -68,13 +79,17 @@ public class CryptoUtils {
 
     public String encrypt(ECKey receiverPubKey, String clearText) throws CryptoUtilsException {
 
+        return encrypt(receiverPubKey, clearText.getBytes());
+    }
+
+    public String encrypt(ECKey receiverPubKey, byte[] clearTextData) throws CryptoUtilsException {
+
         try {
             PublicKey publicKey = toPublicKey(receiverPubKey);
 
-            Cipher ecIESCipher = Cipher.getInstance("ECIES", BouncyCastleProvider.PROVIDER_NAME);
+            Cipher ecIESCipher = getCipher();
             ecIESCipher.init(Cipher.ENCRYPT_MODE, publicKey);
 
-            byte[] clearTextData = clearText.getBytes();
             byte[] cipherData = ecIESCipher.doFinal(clearTextData, 0, clearTextData.length);
             return Base58.encode(cipherData);
 
@@ -88,10 +103,22 @@ public class CryptoUtils {
     public String decrypt(ECKey receiverPrvKey, String cypherTextBase58) throws CryptoUtilsException {
 
         try {
-            Cipher ecIESCipher = Cipher.getInstance("ECIES", BouncyCastleProvider.PROVIDER_NAME);
-            ecIESCipher.init(Cipher.DECRYPT_MODE, toPrivateKey(receiverPrvKey));
-            byte[] clearTextData = ecIESCipher.doFinal(Base58.decode(cypherTextBase58));
+            byte[] clearTextData = decryptBytes(receiverPrvKey, cypherTextBase58);
             return String.valueOf(StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(clearTextData)));
+        } catch (CryptoUtilsException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Couldn't decrypt: {}", e.getMessage());
+            throw new CryptoUtilsException(e.getMessage(), e);
+        }
+    }
+
+    public byte[] decryptBytes(ECKey receiverPrvKey, String cypherTextBase58) throws CryptoUtilsException {
+
+        try {
+            Cipher ecIESCipher = getCipher();
+            ecIESCipher.init(Cipher.DECRYPT_MODE, toPrivateKey(receiverPrvKey));
+            return ecIESCipher.doFinal(Base58.decode(cypherTextBase58));
         } catch (NoSuchAlgorithmException | BadPaddingException | InvalidKeyException
                 | InvalidKeySpecException | NoSuchPaddingException | NoSuchProviderException
                 | IllegalBlockSizeException e) {
@@ -103,19 +130,45 @@ public class CryptoUtils {
         }
     }
 
+    private Cipher getCipher() throws NoSuchAlgorithmException, NoSuchPaddingException, NoSuchProviderException {
+
+        Cipher cipher = ciphers.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(CIPHER_TRANSFORMATION, BouncyCastleProvider.PROVIDER_NAME);
+            ciphers.set(cipher);
+        }
+        return cipher;
+    }
+
     PublicKey toPublicKey(ECKey ecKey) throws InvalidKeySpecException {
 
-        // Q
-        ECPoint q = ecKey.getPubKeyPoint();
-        ECPublicKeySpec pubKey = new ECPublicKeySpec(q, spec);
-        return keyFactory.generatePublic(pubKey);
+        ByteBuffer cacheKey = ByteBuffer.wrap(ecKey.getPubKey());
+        PublicKey publicKey = publicKeys.get(cacheKey);
+        if (publicKey == null) {
+            // Q
+            ECPoint q = ecKey.getPubKeyPoint();
+            ECPublicKeySpec pubKey = new ECPublicKeySpec(q, spec);
+            synchronized (keyFactory) {
+                publicKey = keyFactory.generatePublic(pubKey);
+            }
+            publicKeys.put(cacheKey, publicKey);
+        }
+        return publicKey;
     }
 
     PrivateKey toPrivateKey(ECKey ecKey) throws InvalidKeySpecException {
 
-        // d
-        BigInteger d = ecKey.getPrivKey();
-        ECPrivateKeySpec prvkey = new ECPrivateKeySpec(d, spec);
-        return keyFactory.generatePrivate(prvkey);
+        ByteBuffer cacheKey = ByteBuffer.wrap(ecKey.getPubKey());
+        PrivateKey privateKey = privateKeys.get(cacheKey);
+        if (privateKey == null) {
+            // d
+            BigInteger d = ecKey.getPrivKey();
+            ECPrivateKeySpec prvkey = new ECPrivateKeySpec(d, spec);
+            synchronized (keyFactory) {
+                privateKey = keyFactory.generatePrivate(prvkey);
+            }
+            privateKeys.put(cacheKey, privateKey);
+        }
+        return privateKey;
     }
 }
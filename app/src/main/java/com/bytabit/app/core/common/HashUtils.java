@@ -20,40 +20,58 @@ import org.bitcoinj.core.Base58;
 import org.bitcoinj.core.Sha256Hash;
 import org.spongycastle.util.encoders.Base64;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.Date;
 
 public class HashUtils {
 
-    public static final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+
+    // enough for hashes nested in the property values of other hashes
+    private static final int MAX_POOLED_HASHERS = 4;
+
+    private static final ThreadLocal<DateFormat> dateFormats = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return new SimpleDateFormat(DATE_FORMAT);
+        }
+    };
+
+    private static final ThreadLocal<ArrayDeque<Sha256Hasher>> hashers = new ThreadLocal<ArrayDeque<Sha256Hasher>>() {
+        @Override
+        protected ArrayDeque<Sha256Hasher> initialValue() {
+            return new ArrayDeque<>(MAX_POOLED_HASHERS);
+        }
+    };
+
+    public static Sha256Hasher hasher() {
+        Sha256Hasher hasher = hashers.get().poll();
+        if (hasher == null) {
+            hasher = new Sha256Hasher();
+        }
+        hasher.open();
+        return hasher;
+    }
+
+    static void release(Sha256Hasher hasher) {
+        ArrayDeque<Sha256Hasher> pooled = hashers.get();
+        if (pooled.size() < MAX_POOLED_HASHERS) {
+            pooled.push(hasher);
+        }
+    }
+
+    static String formatDate(Date date) {
+        return dateFormats.get().format(date);
+    }
 
     public static Sha256Hash sha256Hash(Object... propertyValues) {
-        ByteArrayOutputStream hashedProperties = new ByteArrayOutputStream();
-        try {
+        try (Sha256Hasher hasher = hasher()) {
             for (Object propertyValue : propertyValues) {
-                if (propertyValue != null) {
-                    if (propertyValue instanceof Sha256Hash) {
-                        hashedProperties.write(((Sha256Hash) propertyValue).getBytes());
-                    } else if (propertyValue instanceof String) {
-                        hashedProperties.write(Sha256Hash.of(((String) propertyValue).getBytes()).getBytes());
-                    } else if (propertyValue instanceof Date) {
-                        hashedProperties.write(Sha256Hash.of(dateFormat.format((Date) propertyValue).getBytes()).getBytes());
-                    } else if (propertyValue instanceof BigDecimal) {
-                        hashedProperties.write(Sha256Hash.of(((BigDecimal) propertyValue).toPlainString().getBytes()).getBytes());
-                    } else if (propertyValue instanceof Enum) {
-                        hashedProperties.write(Sha256Hash.of((propertyValue).toString().getBytes()).getBytes());
-                    } else {
-                        throw new HashException("Unsupported property value type");
-                    }
-                }
+                hasher.put(propertyValue);
             }
-            return Sha256Hash.of(hashedProperties.toByteArray());
-        } catch (IOException ioe) {
-            throw new HashException("Unable to create hash.", ioe);
+            return hasher.hash();
         }
     }
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bytabit.app.core.common;
+
+import org.bitcoinj.core.Sha256Hash;
+
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+
+/**
+ * Builds the same hashes as {@link HashUtils#sha256Hash(Object...)} by feeding the sha256 of each
+ * property value directly into a reusable digest. Get instances with {@link HashUtils#hasher()} in a
+ * try-with-resources block, closing the hasher returns it to the current thread's pool and it can't be used after.
+ */
+public class Sha256Hasher implements AutoCloseable {
+
+    private final MessageDigest propertyDigest;
+
+    private final MessageDigest digest;
+
+    private boolean closed = true;
+
+    Sha256Hasher() {
+        try {
+            this.propertyDigest = MessageDigest.getInstance("SHA-256");
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new HashException("Unable to create hasher.", e);
+        }
+    }
+
+    public Sha256Hasher put(String value) {
+        checkOpen();
+        if (value != null) {
+            putBytes(value.getBytes());
+        }
+        return this;
+    }
+
+    public Sha256Hasher put(Date value) {
+        return put(value, null);
+    }
+
+    // reuse the property hash of the date if it was already encoded for the given cache
+    public Sha256Hasher put(Date value, CachedHash cachedHash) {
+        checkOpen();
+        if (value != null) {
+            Long key = value.getTime();
+            byte[] encoded = cachedHash != null ? cachedHash.getEncoding(key) : null;
+            if (encoded == null) {
+                encoded = propertyDigest.digest(HashUtils.formatDate(value).getBytes());
+                if (cachedHash != null) {
+                    cachedHash.setEncoding(key, encoded);
+                }
+            }
+            digest.update(encoded);
+        }
+        return this;
+    }
+
+    public Sha256Hasher put(BigDecimal value) {
+        return put(value, null);
+    }
+
+    // reuse the property hash of the decimal if it was already encoded for the given cache
+    public Sha256Hasher put(BigDecimal value, CachedHash cachedHash) {
+        checkOpen();
+        if (value != null) {
+            byte[] encoded = cachedHash != null ? cachedHash.getEncoding(value) : null;
+            if (encoded == null) {
+                encoded = propertyDigest.digest(value.toPlainString().getBytes());
+                if (cachedHash != null) {
+                    cachedHash.setEncoding(value, encoded);
+                }
+            }
+            digest.update(encoded);
+        }
+        return this;
+    }
+
+    public Sha256Hasher put(Enum<?> value) {
+        checkOpen();
+        if (value != null) {
+            putBytes(value.toString().getBytes());
+        }
+        return this;
+    }
+
+    public Sha256Hasher put(Sha256Hash value) {
+        checkOpen();
+        if (value != null) {
+            digest.update(value.getBytes());
+        }
+        return this;
+    }
+
+    Sha256Hasher put(Object value) {
+        if (value == null || value instanceof Sha256Hash) {
+            return put((Sha256Hash) value);
+        } else if (value instanceof String) {
+            return put((String) value);
+        } else if (value instanceof Date) {
+            return put((Date) value);
+        } else if (value instanceof BigDecimal) {
+            return put((BigDecimal) value);
+        } else if (value instanceof Enum) {
+            return put((Enum<?>) value);
+        } else {
+            throw new HashException("Unsupported property value type");
+        }
+    }
+
+    // finish the hash, the hasher is reset and can be used for another hash until closed
+    public Sha256Hash hash() {
+        checkOpen();
+        return Sha256Hash.wrap(digest.digest());
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            propertyDigest.reset();
+            digest.reset();
+            HashUtils.release(this);
+        }
+    }
+
+    void open() {
+        closed = false;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new HashException("Hasher used after it was closed.");
+        }
+    }
+
+    private void putBytes(byte[] bytes) {
+        digest.update(propertyDigest.digest(bytes));
+    }
+}
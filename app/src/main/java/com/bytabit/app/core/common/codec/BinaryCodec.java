@@ -0,0 +1,242 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.codec;
+
+import com.bytabit.app.core.common.json.GsonFactory;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of the gson object tree. Strings and field names are length prefixed,
+ * decimals are written as an unscaled long plus scale and dates as epoch milliseconds. Data that
+ * doesn't start with the binary format magic bytes is decoded as json, for data written before
+ * this codec was used.
+ */
+public class BinaryCodec implements Codec {
+
+    private static final byte[] MAGIC = {(byte) 0xBB, 0x01};
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int STRING = 3;
+    private static final int DECIMAL = 4;
+    private static final int BIG_DECIMAL = 5;
+    private static final int ARRAY = 6;
+    private static final int OBJECT = 7;
+
+    // deeper nesting is rejected rather than risking a stack overflow on malformed input
+    private static final int MAX_DEPTH = 64;
+
+    private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private final Gson gson;
+
+    private final JsonCodec jsonCodec;
+
+    public BinaryCodec() {
+        this(GsonFactory.createBinary(), GsonFactory.create());
+    }
+
+    public BinaryCodec(Gson binaryGson, Gson jsonGson) {
+        this.gson = binaryGson;
+        this.jsonCodec = new JsonCodec(jsonGson);
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(MAGIC);
+            writeElement(out, gson.toJsonTree(value));
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ioe) {
+            throw new CodecException(String.format("Could not encode %s.", value.getClass().getSimpleName()), ioe);
+        }
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+
+        if (!isBinary(data)) {
+            return jsonCodec.decode(data, type);
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, MAGIC.length, data.length - MAGIC.length));
+            return gson.fromJson(readElement(in, 0), type);
+        } catch (CodecException ce) {
+            throw ce;
+        } catch (IOException | RuntimeException e) {
+            throw new CodecException(String.format("Could not decode %s.", type.getSimpleName()), e);
+        }
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data.length >= MAGIC.length && data[0] == MAGIC[0] && data[1] == MAGIC[1];
+    }
+
+    private void writeElement(DataOutputStream out, JsonElement element) throws IOException {
+
+        if (element == null || element.isJsonNull()) {
+            out.writeByte(NULL);
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            out.writeByte(OBJECT);
+            writeVarLong(out, object.size());
+            for (Map.Entry<String, JsonElement> member : object.entrySet()) {
+                writeString(out, member.getKey());
+                writeElement(out, member.getValue());
+            }
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.writeByte(ARRAY);
+            writeVarLong(out, array.size());
+            for (JsonElement item : array) {
+                writeElement(out, item);
+            }
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isNumber()) {
+                BigDecimal decimal = primitive.getAsBigDecimal();
+                BigInteger unscaled = decimal.unscaledValue();
+                if (unscaled.compareTo(MIN_LONG) >= 0 && unscaled.compareTo(MAX_LONG) <= 0) {
+                    out.writeByte(DECIMAL);
+                    writeVarLong(out, zigZag(unscaled.longValue()));
+                    writeVarLong(out, zigZag(decimal.scale()));
+                } else {
+                    out.writeByte(BIG_DECIMAL);
+                    writeString(out, decimal.toString());
+                }
+            } else {
+                out.writeByte(STRING);
+                writeString(out, primitive.getAsString());
+            }
+        }
+    }
+
+    private JsonElement readElement(DataInputStream in, int depth) throws IOException {
+
+        if (depth > MAX_DEPTH) {
+            throw new CodecException("Maximum nesting depth exceeded.");
+        }
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case TRUE:
+                return new JsonPrimitive(true);
+            case FALSE:
+                return new JsonPrimitive(false);
+            case STRING:
+                return new JsonPrimitive(readString(in));
+            case DECIMAL:
+                long unscaled = unZigZag(readVarLong(in));
+                long scale = unZigZag(readVarLong(in));
+                if (scale < Integer.MIN_VALUE || scale > Integer.MAX_VALUE) {
+                    throw new CodecException(String.format("Invalid decimal scale %d.", scale));
+                }
+                return new JsonPrimitive(BigDecimal.valueOf(unscaled, (int) scale));
+            case BIG_DECIMAL:
+                return new JsonPrimitive(new BigDecimal(readString(in)));
+            case ARRAY:
+                JsonArray array = new JsonArray();
+                for (int i = readLength(in); i > 0; i--) {
+                    array.add(readElement(in, depth + 1));
+                }
+                return array;
+            case OBJECT:
+                JsonObject object = new JsonObject();
+                for (int i = readLength(in); i > 0; i--) {
+                    String name = readString(in);
+                    object.add(name, readElement(in, depth + 1));
+                }
+                return object;
+            default:
+                throw new CodecException(String.format("Unknown tag %d.", tag));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[readLength(in)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // every string byte, array item or object member takes at least one byte of the remaining input
+    private static int readLength(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > in.available()) {
+            throw new CodecException(String.format("Length %d exceeds remaining input.", length));
+        }
+        return (int) length;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new CodecException("Malformed variable length number.");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
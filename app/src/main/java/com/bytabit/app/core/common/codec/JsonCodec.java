@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.codec;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+
+public class JsonCodec implements Codec {
+
+    private final Gson gson;
+
+    public JsonCodec(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) {
+        try {
+            return gson.fromJson(new String(data, StandardCharsets.UTF_8), type);
+        } catch (RuntimeException re) {
+            throw new CodecException(String.format("Could not decode %s json.", type.getSimpleName()), re);
+        }
+    }
+}
@@ -17,131 +17,260 @@
 package com.bytabit.app.core.common.file;
 
 import com.bytabit.app.core.common.AppConfig;
-import com.bytabit.app.core.common.RetryWithDelay;
-import com.bytabit.app.core.common.json.DateConverter;
+import com.bytabit.app.core.common.codec.BinaryCodec;
+import com.bytabit.app.core.common.json.GsonFactory;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import io.reactivex.Completable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public abstract class EntityFileStorage<T extends Entity> {
 
-    private static final String JSON_EXT = ".json";
+    public enum StoreType {
+        JSON_FILES, LOG
+    }
+
+    // writes arriving within this window are written and synced as one batch
+    private static final long WRITE_BATCH_WINDOW_MS = 20;
+
+    // a failed batch is retried before its writers get the error
+    private static final int WRITE_ATTEMPTS = 3;
+
+    private static final long WRITE_RETRY_DELAY_MS = 500;
 
     private final Class<T> entityClass;
 
-    private final String path;
+    private final EntityStore<T> store;
+
+    // write-through cache of copies of all stored entities, keyed by entity id
+    private final Map<String, T> entities = new ConcurrentHashMap<>();
 
-    private final Gson gson;
+    private final Completable loaded;
 
-    private final File filesDir;
+    private final Queue<PendingWrite<T>> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final Subject<StorageEvent<T>> events = PublishSubject.<StorageEvent<T>>create().toSerialized();
+
+    private final AtomicLong eventSequence = new AtomicLong();
 
     public EntityFileStorage(AppConfig appConfig, Class<T> entityClass) {
+        this(appConfig, entityClass, StoreType.JSON_FILES);
+    }
+
+    public EntityFileStorage(AppConfig appConfig, Class<T> entityClass, StoreType storeType) {
 
         this.entityClass = entityClass;
 
-        gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .registerTypeAdapter(Date.class, new DateConverter())
-                .create();
+        Gson gson = GsonFactory.create();
 
-        path = String.format("%s%s%s%s", appConfig.getAppStorage().getPath(), File.separator,
+        String path = String.format("%s%s%s%s", appConfig.getAppStorage().getPath(), File.separator,
                 entityClass.getSimpleName().toLowerCase(), File.separator);
 
-        filesDir = new File(path);
+        File filesDir = new File(path);
 
         if (!filesDir.exists()) {
             filesDir.mkdirs();
         }
+
+        if (StoreType.LOG.equals(storeType)) {
+            store = new LogFileStore<>(filesDir, entityClass, new BinaryCodec(), gson);
+        } else {
+            store = new JsonFileStore<>(filesDir, entityClass, gson);
+        }
+
+        // load all entities from the store once, on first use
+        loaded = Completable.fromAction(() -> {
+            for (T entity : store.loadAll()) {
+                entities.put(entity.getId(), entity);
+                entityStored(entity);
+            }
+        })
+                .doOnError(t -> log.error("load error: {}", t.getMessage()))
+                .doOnComplete(() -> log.debug("Loaded {} {} entities", entities.size(), entityClass.getSimpleName()))
+                .cache();
     }
 
     public Single<List<T>> getAll() {
 
-        return Observable.fromArray(filesDir.list())
-                .filter(fileName -> fileName != null && fileName.endsWith(JSON_EXT))
-                .map(fileName -> fileName.substring(0, fileName.lastIndexOf('.')))
-                .flatMapMaybe(this::read)
-                .toList();
+        return loaded.andThen(Single.fromCallable(() -> copyAll(entities.values())));
     }
 
     public Single<T> write(T entity) {
 
-        return Single.<T>create(source -> {
-            String fileName = fileName(entity.getId());
-            File file = new File(fileName);
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                String entityJson = gson.toJson(entity);
-                OutputStreamWriter osw = new OutputStreamWriter(fos);
-                osw.write(entityJson);
-                osw.close();
-                fos.flush();
-                fos.close();
-                source.onSuccess(entity);
-            } catch (Exception e) {
-                source.onError(new FileStorageException(String.format("Could not write: %s", fileName)));
+        return loaded.andThen(Single.<T>create(source -> {
+            pendingWrites.add(new PendingWrite<>(entity, source));
+            if (flushScheduled.compareAndSet(false, true)) {
+                Schedulers.io().scheduleDirect(this::flushWrites, WRITE_BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
             }
-        }).retryWhen(new RetryWithDelay(3, 500, TimeUnit.MILLISECONDS))
+        }))
                 .doOnError(t -> log.error("write error: {}", t.getMessage()))
                 .doOnSuccess(e -> log.debug("Write entity: {}", e));
     }
 
     public Maybe<T> read(String id) {
 
-        return Maybe.<T>create(source -> {
-            String fileName = fileName(id);
-            File file = new File(fileName);
-            try (FileInputStream fis = new FileInputStream(file)) {
-                InputStreamReader isr = new InputStreamReader(fis);
-                BufferedReader bufferedReader = new BufferedReader(isr);
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    sb.append(line);
-                }
-                String fileJson = sb.toString();
-                T entity = gson.fromJson(fileJson, entityClass);
-                source.onSuccess(entity);
-            } catch (FileNotFoundException fnfe) {
-                log.warn("File not found: {}", fileName);
-                source.onComplete();
-            } catch (Exception e) {
-                source.onError(new FileStorageException(String.format("Could not read: %s", fileName)));
-            }
-        })
-                .retryWhen(new RetryWithDelay(3, 500, TimeUnit.MILLISECONDS))
-                .doOnError(t -> log.error("read error: {}", t.getMessage()));
+        return loaded.andThen(Maybe.fromCallable(() -> {
+            T entity = entities.get(id);
+            return entity != null ? copy(entity) : null;
+        }));
     }
 
     public Single<String> delete(String id) {
-        return Single.create(source -> {
-            String entityFileName = fileName(id);
-            File entityFile = new File(entityFileName);
+
+        return loaded.andThen(Single.fromCallable(() -> deleteEntity(id)))
+                .doOnError(t -> log.error("delete error: {}", t.getMessage()));
+    }
+
+    private synchronized String deleteEntity(String id) {
+
+        // don't let a pending write of this entity recreate it after the delete
+        flushWrites();
+        store.delete(id);
+        entities.remove(id);
+        entityRemoved(id);
+        events.onNext(new StorageEvent<>(StorageEvent.Type.DELETED, id, null, eventSequence.incrementAndGet()));
+        return id;
+    }
+
+    /**
+     * Hot stream of entities written or deleted after subscribing, emitted once the change is stored.
+     */
+    public Observable<StorageEvent<T>> getEvents() {
+        return events.hide();
+    }
+
+    // run query on the loaded entities
+    protected <R> Single<R> query(Callable<R> query) {
+
+        return loaded.andThen(Single.fromCallable(query));
+    }
+
+    protected List<T> getLoaded(Collection<String> ids) {
+
+        List<T> found = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T entity = entities.get(id);
+            if (entity != null) {
+                found.add(copy(entity));
+            }
+        }
+        return found;
+    }
+
+    // cached entities are only changed by stored writes, readers and writers get their own shallow copies,
+    // nested values are replaced rather than changed so they can be shared
+    protected abstract T copy(T entity);
+
+    private List<T> copyAll(Collection<T> entities) {
+
+        List<T> copies = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            copies.add(copy(entity));
+        }
+        return copies;
+    }
+
+    // called after an entity is loaded or written, override to maintain secondary indexes
+    protected void entityStored(T entity) {
+    }
+
+    // called after an entity is deleted
+    protected void entityRemoved(String id) {
+    }
+
+    private synchronized void flushWrites() {
+
+        flushScheduled.set(false);
+
+        List<PendingWrite<T>> batch = new ArrayList<>();
+        PendingWrite<T> pendingWrite;
+        while ((pendingWrite = pendingWrites.poll()) != null) {
+            batch.add(pendingWrite);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // only the last write of each entity in the batch needs to reach the store, a copy is taken so later
+        // changes by the writer don't reach the cache
+        Map<String, T> latest = new LinkedHashMap<>();
+        for (PendingWrite<T> write : batch) {
+            latest.put(write.entity.getId(), write.entity);
+        }
+        for (Map.Entry<String, T> entry : latest.entrySet()) {
+            entry.setValue(copy(entry.getValue()));
+        }
+
+        try {
+            writeWithRetry(new ArrayList<>(latest.values()));
+            entities.putAll(latest);
+            for (T entity : latest.values()) {
+                entityStored(entity);
+            }
+        } catch (Exception e) {
+            for (PendingWrite<T> write : batch) {
+                write.source.onError(e);
+            }
+            return;
+        }
+        for (T entity : latest.values()) {
+            events.onNext(new StorageEvent<>(StorageEvent.Type.UPSERTED, entity.getId(), copy(entity),
+                    eventSequence.incrementAndGet()));
+        }
+        for (PendingWrite<T> write : batch) {
+            write.source.onSuccess(write.entity);
+        }
+    }
+
+    private void writeWithRetry(List<T> batch) throws Exception {
+
+        for (int attempt = 1; ; attempt++) {
             try {
-                entityFile.delete();
-                source.onSuccess(id);
-            } catch (Exception ex) {
-                log.error("Could not delete: {}", entityFile);
-                source.onSuccess(id);
+                store.writeAll(batch);
+                return;
+            } catch (Exception e) {
+                if (attempt >= WRITE_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("write attempt {} failed: {}", attempt, e.getMessage());
+                Thread.sleep(WRITE_RETRY_DELAY_MS);
             }
-        });
+        }
     }
 
-    private String fileName(String id) {
-        return String.format("%s%s%s", path, id, JSON_EXT);
+    private static class PendingWrite<T> {
+
+        private final T entity;
+
+        private final SingleEmitter<T> source;
+
+        private PendingWrite(T entity, SingleEmitter<T> source) {
+            this.entity = entity;
+            this.source = source;
+        }
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.file;
+
+import java.util.List;
+
+/**
+ * Blocking storage backend used by {@link EntityFileStorage}. Implementations throw
+ * {@link FileStorageException} when an entity can not be loaded, written or deleted.
+ */
+public interface EntityStore<T extends Entity> {
+
+    List<T> loadAll();
+
+    void write(T entity);
+
+    /**
+     * Write a batch of entities, each one replaced atomically, and make the whole batch durable
+     * before returning.
+     */
+    void writeAll(List<T> entities);
+
+    void delete(String id);
+}
@@ -16,7 +16,12 @@
 
 package com.bytabit.app.core.common.file;
 
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -46,4 +51,28 @@ public class FileUtils {
             }
         }
     }
+
+    /**
+     * Sync a directory so files created, renamed or deleted in it survive a crash.
+     *
+     * @param dir directory to sync
+     */
+    public static void syncDirectory(File dir) throws IOException {
+
+        FileDescriptor fd = null;
+        try {
+            fd = Os.open(dir.getPath(), OsConstants.O_RDONLY, 0);
+            Os.fsync(fd);
+        } catch (ErrnoException ee) {
+            throw new IOException(String.format("Could not sync %s", dir), ee);
+        } finally {
+            if (fd != null) {
+                try {
+                    Os.close(fd);
+                } catch (ErrnoException ee) {
+                    // already synced
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.file;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores each entity as a separate JSON file named by the entity id.
+ */
+@Slf4j
+public class JsonFileStore<T extends Entity> implements EntityStore<T> {
+
+    static final String JSON_EXT = ".json";
+
+    private static final String TEMP_EXT = ".tmp";
+
+    private static final int MIN_LOAD_CHUNK_SIZE = 16;
+
+    private final Class<T> entityClass;
+
+    private final Gson gson;
+
+    private final File filesDir;
+
+    public JsonFileStore(File filesDir, Class<T> entityClass, Gson gson) {
+        this.filesDir = filesDir;
+        this.entityClass = entityClass;
+        this.gson = gson;
+    }
+
+    // read entity files in parallel chunks on the io scheduler, one chunk per available core, results are in id order
+    @Override
+    public List<T> loadAll() {
+
+        deleteTempFiles();
+
+        List<String> ids = listIds();
+        Collections.sort(ids);
+
+        int workers = Math.min(Runtime.getRuntime().availableProcessors(), ids.size() / MIN_LOAD_CHUNK_SIZE);
+        if (workers <= 1) {
+            return readAll(ids);
+        }
+
+        // rounding the chunk size up can leave fewer non-empty chunks than workers
+        int chunkSize = (ids.size() + workers - 1) / workers;
+        int chunks = (ids.size() + chunkSize - 1) / chunkSize;
+        return Observable.range(0, chunks)
+                .concatMapEager(i -> Observable.fromCallable(() ->
+                        readAll(ids.subList(Math.min(ids.size(), i * chunkSize),
+                                Math.min(ids.size(), (i + 1) * chunkSize))))
+                        .subscribeOn(Schedulers.io()))
+                .flatMapIterable(entities -> entities)
+                .toList()
+                .blockingGet();
+    }
+
+    private List<T> readAll(List<String> ids) {
+
+        List<T> loadedEntities = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            try {
+                T entity = read(id);
+                if (entity != null) {
+                    loadedEntities.add(entity);
+                }
+            } catch (FileStorageException fse) {
+                log.error("load error: {}", fse.getMessage());
+            }
+        }
+        return loadedEntities;
+    }
+
+    @Override
+    public void write(T entity) {
+
+        writeAll(Collections.singletonList(entity));
+    }
+
+    // write and sync each entity to a temp file, then rename temp files over the entity files and sync the
+    // directory once for the batch, temp files of entities that couldn't be committed are removed
+    @Override
+    public void writeAll(List<T> entities) {
+
+        List<File> tempFiles = new ArrayList<>(entities.size());
+        try {
+            for (T entity : entities) {
+                File tempFile = new File(fileName(entity.getId()) + TEMP_EXT);
+                tempFiles.add(tempFile);
+                try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+                    OutputStreamWriter osw = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
+                    osw.write(gson.toJson(entity));
+                    osw.flush();
+                    fos.getFD().sync();
+                }
+            }
+        } catch (Exception e) {
+            for (File tempFile : tempFiles) {
+                tempFile.delete();
+            }
+            throw new FileStorageException(String.format("Could not write: %s", tempFiles.get(tempFiles.size() - 1)));
+        }
+
+        List<String> uncommittedIds = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i++) {
+            String id = entities.get(i).getId();
+            if (!tempFiles.get(i).renameTo(new File(fileName(id)))) {
+                tempFiles.get(i).delete();
+                uncommittedIds.add(id);
+            }
+        }
+        try {
+            FileUtils.syncDirectory(filesDir);
+        } catch (IOException ioe) {
+            throw new FileStorageException(String.format("Could not sync: %s", filesDir), ioe);
+        }
+        if (!uncommittedIds.isEmpty()) {
+            throw new FileStorageException(String.format("Could not commit: %s", uncommittedIds));
+        }
+    }
+
+    @Override
+    public void delete(String id) {
+
+        File entityFile = new File(fileName(id));
+        if (entityFile.exists() && !entityFile.delete()) {
+            log.error("Could not delete: {}", entityFile);
+        }
+    }
+
+    // remove temp files left by writes interrupted before their rename
+    private void deleteTempFiles() {
+
+        File[] tempFiles = filesDir.listFiles((dir, name) -> name.endsWith(TEMP_EXT));
+        if (tempFiles != null) {
+            for (File tempFile : tempFiles) {
+                log.warn("Deleting incomplete write: {}", tempFile);
+                tempFile.delete();
+            }
+        }
+    }
+
+    List<String> listIds() {
+
+        List<String> ids = new ArrayList<>();
+        String[] fileNames = filesDir.list();
+        if (fileNames != null) {
+            for (String fileName : fileNames) {
+                if (fileName.endsWith(JSON_EXT)) {
+                    ids.add(fileName.substring(0, fileName.lastIndexOf('.')));
+                }
+            }
+        }
+        return ids;
+    }
+
+    T read(String id) {
+
+        String fileName = fileName(id);
+        File file = new File(fileName);
+        try (JsonReader jsonReader = new JsonReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            return gson.fromJson(jsonReader, entityClass);
+        } catch (FileNotFoundException fnfe) {
+            log.warn("File not found: {}", fileName);
+            return null;
+        } catch (Exception e) {
+            throw new FileStorageException(String.format("Could not read: %s", fileName));
+        }
+    }
+
+    private String fileName(String id) {
+        return String.format("%s%s%s%s", filesDir.getPath(), File.separator, id, JSON_EXT);
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.file;
+
+import com.bytabit.app.core.common.codec.Codec;
+import com.bytabit.app.core.common.codec.CodecException;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import io.reactivex.schedulers.Schedulers;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores all entities of one type in a single append-only segment file. Every write or delete
+ * appends a versioned record, an in memory index points to the latest record for each id and
+ * superseded records are dropped by compacting the segment in the background.
+ * <p>
+ * Record layout: length (int), crc32 of body (int), body. Body layout: type (byte),
+ * sequence (long), id (UTF), and for a put the encoded entity length (int) and bytes.
+ */
+@Slf4j
+public class LogFileStore<T extends Entity> implements EntityStore<T> {
+
+    static final String LOG_FILE_NAME = "entities.log";
+
+    private static final String COMPACT_EXT = ".compact";
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    // only compact segments of at least this size that are mostly superseded records
+    private static final long COMPACT_MIN_SIZE = 64 * 1024;
+
+    private final Class<T> entityClass;
+
+    private final Codec codec;
+
+    private final Gson gson;
+
+    private final File filesDir;
+
+    private final File logFile;
+
+    // id -> offset and length of latest put record
+    private Map<String, RecordPosition> index = new HashMap<>();
+
+    private RandomAccessFile segment;
+
+    private long sequence = 0;
+
+    private long liveBytes = 0;
+
+    private boolean compacting = false;
+
+    // gson is used to import entities from json files written by JsonFileStore
+    public LogFileStore(File filesDir, Class<T> entityClass, Codec codec, Gson gson) {
+        this.filesDir = filesDir;
+        this.entityClass = entityClass;
+        this.codec = codec;
+        this.gson = gson;
+        this.logFile = new File(filesDir, LOG_FILE_NAME);
+    }
+
+    @Override
+    public synchronized List<T> loadAll() {
+
+        // remove a segment left by a compaction or import interrupted before its rename
+        File tempFile = new File(filesDir, LOG_FILE_NAME + COMPACT_EXT);
+        if (tempFile.exists()) {
+            log.warn("Deleting incomplete segment: {}", tempFile);
+            tempFile.delete();
+        }
+
+        try {
+            if (!logFile.exists()) {
+                importJsonFiles();
+            }
+            return open();
+        } catch (IOException ioe) {
+            throw new FileStorageException(String.format("Could not load: %s", logFile), ioe);
+        }
+    }
+
+    @Override
+    public synchronized void write(T entity) {
+
+        writeAll(Collections.singletonList(entity));
+    }
+
+    // append all records and sync the segment once for the whole batch
+    @Override
+    public synchronized void writeAll(List<T> entities) {
+
+        try {
+            ensureOpen();
+            List<RecordPosition> positions = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                positions.add(append(PUT, entity.getId(), codec.encode(entity)));
+            }
+            segment.getFD().sync();
+
+            for (int i = 0; i < entities.size(); i++) {
+                RecordPosition position = positions.get(i);
+                RecordPosition replaced = index.put(entities.get(i).getId(), position);
+                liveBytes += position.length - (replaced != null ? replaced.length : 0);
+            }
+            maybeCompact();
+        } catch (IOException ioe) {
+            throw new FileStorageException(String.format("Could not write: %s", logFile), ioe);
+        }
+    }
+
+    @Override
+    public synchronized void delete(String id) {
+
+        try {
+            ensureOpen();
+            if (index.containsKey(id)) {
+                append(DELETE, id, null);
+                segment.getFD().sync();
+                liveBytes -= index.remove(id).length;
+                maybeCompact();
+            }
+        } catch (IOException ioe) {
+            throw new FileStorageException(String.format("Could not delete: %s", id), ioe);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (segment == null) {
+            open();
+        }
+    }
+
+    // scan segment, rebuild index and truncate any partially written record at the tail, corrupt records
+    // before the tail are skipped
+    private List<T> open() throws IOException {
+
+        closeQuietly();
+        segment = new RandomAccessFile(logFile, "rw");
+
+        Map<String, T> loadedEntities = new LinkedHashMap<>();
+        index = new HashMap<>();
+        liveBytes = 0;
+
+        long fileLength = segment.length();
+        long offset = 0;
+        while (offset + RECORD_HEADER_SIZE <= fileLength) {
+            segment.seek(offset);
+            int bodyLength = segment.readInt();
+            int crc = segment.readInt();
+            long recordEnd = offset + RECORD_HEADER_SIZE + bodyLength;
+            if (bodyLength <= 0 || recordEnd > fileLength) {
+                if (bodyLength > 0 || isZeroFilled(offset, fileLength)) {
+                    break;
+                }
+                throw new IOException(String.format("Corrupt record header at %d of %s", offset, logFile));
+            }
+            byte[] body = new byte[bodyLength];
+            segment.readFully(body);
+            if (crc != crc32(body)) {
+                if (recordEnd == fileLength) {
+                    break;
+                }
+                log.error("Skipping corrupt record at {} of {}", offset, logFile);
+                offset = recordEnd;
+                continue;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+            byte type = in.readByte();
+            sequence = Math.max(sequence, in.readLong());
+            String id = in.readUTF();
+            RecordPosition position = new RecordPosition(offset, RECORD_HEADER_SIZE + bodyLength);
+
+            if (type == PUT) {
+                byte[] entityData = new byte[in.readInt()];
+                in.readFully(entityData);
+                loadedEntities.remove(id);
+                try {
+                    loadedEntities.put(id, codec.decode(entityData, entityClass));
+                } catch (CodecException ce) {
+                    // keep the record indexed so compaction doesn't drop it, a later write replaces it
+                    log.error("Setting aside record for {} at {} of {}: {}", id, offset, logFile, ce.getMessage());
+                }
+                RecordPosition replaced = index.put(id, position);
+                liveBytes += position.length - (replaced != null ? replaced.length : 0);
+            } else if (type == DELETE) {
+                loadedEntities.remove(id);
+                RecordPosition removed = index.remove(id);
+                liveBytes -= removed != null ? removed.length : 0;
+            }
+            offset += position.length;
+        }
+
+        if (offset < fileLength) {
+            log.warn("Truncating incomplete records at {} of {}", offset, logFile);
+            segment.setLength(offset);
+        }
+
+        return new ArrayList<>(loadedEntities.values());
+    }
+
+    // a crash can leave the tail of the segment allocated but not written
+    private boolean isZeroFilled(long offset, long fileLength) throws IOException {
+
+        segment.seek(offset);
+        for (long i = offset; i < fileLength; i++) {
+            if (segment.readByte() != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private RecordPosition append(byte type, String id, byte[] entityData) throws IOException {
+
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeByte(type);
+        body.writeLong(++sequence);
+        body.writeUTF(id);
+        if (entityData != null) {
+            body.writeInt(entityData.length);
+            body.write(entityData);
+        }
+        body.flush();
+
+        byte[] bodyData = bodyBytes.toByteArray();
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(RECORD_HEADER_SIZE + bodyData.length);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        record.writeInt(bodyData.length);
+        record.writeInt(crc32(bodyData));
+        record.write(bodyData);
+        record.flush();
+
+        long offset = segment.length();
+        segment.seek(offset);
+        segment.write(recordBytes.toByteArray());
+
+        return new RecordPosition(offset, recordBytes.size());
+    }
+
+    private void maybeCompact() throws IOException {
+
+        long segmentLength = segment.length();
+        if (!compacting && segmentLength >= COMPACT_MIN_SIZE && liveBytes * 2 < segmentLength) {
+            compacting = true;
+            Schedulers.io().scheduleDirect(this::compact);
+        }
+    }
+
+    // copy live records to a new segment and swap it in place of the current one
+    private synchronized void compact() {
+
+        File compactFile = new File(filesDir, LOG_FILE_NAME + COMPACT_EXT);
+        try {
+            List<Map.Entry<String, RecordPosition>> liveRecords = new ArrayList<>(index.entrySet());
+            Collections.sort(liveRecords, (r1, r2) -> Long.compare(r1.getValue().offset, r2.getValue().offset));
+
+            Map<String, RecordPosition> compactIndex = new HashMap<>();
+            try (RandomAccessFile compacted = new RandomAccessFile(compactFile, "rw")) {
+                compacted.setLength(0);
+                long offset = 0;
+                for (Map.Entry<String, RecordPosition> liveRecord : liveRecords) {
+                    RecordPosition position = liveRecord.getValue();
+                    byte[] record = new byte[position.length];
+                    segment.seek(position.offset);
+                    segment.readFully(record);
+                    compacted.write(record);
+                    compactIndex.put(liveRecord.getKey(), new RecordPosition(offset, position.length));
+                    offset += position.length;
+                }
+                compacted.getFD().sync();
+            }
+
+            long before = segment.length();
+            segment.close();
+            if (!compactFile.renameTo(logFile)) {
+                throw new IOException(String.format("Could not rename %s", compactFile));
+            }
+            FileUtils.syncDirectory(filesDir);
+            segment = new RandomAccessFile(logFile, "rw");
+            index = compactIndex;
+            log.debug("Compacted {} from {} to {} bytes", logFile, before, segment.length());
+        } catch (IOException ioe) {
+            log.error("compact error: {}", ioe.getMessage());
+            compactFile.delete();
+            closeQuietly();
+        } finally {
+            compacting = false;
+        }
+    }
+
+    // move entities stored by JsonFileStore into a new segment, json files that can't be read are left in place
+    private void importJsonFiles() throws IOException {
+
+        JsonFileStore<T> jsonFileStore = new JsonFileStore<>(filesDir, entityClass, gson);
+        List<String> ids = jsonFileStore.listIds();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<String> importedIds = new ArrayList<>(ids.size());
+        File importFile = new File(filesDir, LOG_FILE_NAME + COMPACT_EXT);
+        segment = new RandomAccessFile(importFile, "rw");
+        try {
+            segment.setLength(0);
+            for (T entity : jsonFileStore.loadAll()) {
+                append(PUT, entity.getId(), codec.encode(entity));
+                importedIds.add(entity.getId());
+            }
+            segment.getFD().sync();
+        } finally {
+            segment.close();
+            segment = null;
+        }
+        if (!importFile.renameTo(logFile)) {
+            throw new IOException(String.format("Could not rename %s", importFile));
+        }
+        FileUtils.syncDirectory(filesDir);
+
+        // only delete json files once their entities are durable in the segment
+        for (String id : importedIds) {
+            jsonFileStore.delete(id);
+        }
+        if (importedIds.size() < ids.size()) {
+            log.warn("Could not import {} json files into {}, left in {}", ids.size() - importedIds.size(),
+                    logFile, filesDir);
+        }
+        log.info("Imported {} json files into {}", importedIds.size(), logFile);
+    }
+
+    private void closeQuietly() {
+        try {
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (IOException ioe) {
+            log.warn("Could not close: {}", logFile);
+        }
+        segment = null;
+    }
+
+    private static int crc32(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, data.length);
+        return (int) crc32.getValue();
+    }
+
+    private static class RecordPosition {
+
+        private final long offset;
+
+        private final int length;
+
+        private RecordPosition(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
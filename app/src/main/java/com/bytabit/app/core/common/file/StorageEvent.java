@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.file;
+
+import lombok.Value;
+
+/**
+ * Change to an {@link EntityFileStorage}. The sequence increases with each event of the storage and
+ * is unrelated to entity versions, the entity is null for deletes.
+ */
+@Value
+public class StorageEvent<T extends Entity> {
+
+    public enum Type {
+        UPSERTED, DELETED
+    }
+
+    private final Type type;
+
+    private final String id;
+
+    private final T entity;
+
+    private final long sequence;
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.json;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+
+import java.lang.reflect.Type;
+import java.util.Date;
+
+/**
+ * Converts dates to and from epoch milliseconds, used by compact binary encodings.
+ */
+public class EpochDateConverter implements JsonSerializer<Date>, JsonDeserializer<Date> {
+
+    @Override
+    public JsonElement serialize(Date date, Type type, JsonSerializationContext context) {
+        return new JsonPrimitive(date.getTime());
+    }
+
+    @Override
+    public Date deserialize(JsonElement json, Type type, JsonDeserializationContext context) {
+        try {
+            return new Date(json.getAsLong());
+        } catch (NumberFormatException | IllegalStateException e) {
+            throw new JsonParseException(e);
+        }
+    }
+}
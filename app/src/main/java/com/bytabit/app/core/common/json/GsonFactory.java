@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.json;
+
+import com.bytabit.app.core.badge.model.BadgeTypeAdapterFactory;
+import com.bytabit.app.core.offer.model.OfferTypeAdapterFactory;
+import com.bytabit.app.core.payment.model.PaymentDetailsTypeAdapterFactory;
+import com.bytabit.app.core.trade.model.TradeTypeAdapterFactory;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.Date;
+
+/**
+ * Creates gson instances with the streaming model type adapters registered, so domain models are
+ * not serialized by reflection.
+ */
+public final class GsonFactory {
+
+    private GsonFactory() {
+    }
+
+    public static Gson create() {
+        return builder().registerTypeAdapter(Date.class, new DateConverter()).create();
+    }
+
+    /**
+     * Create gson that writes dates as epoch milliseconds, for the binary codec.
+     */
+    public static Gson createBinary() {
+        return builder().registerTypeAdapter(Date.class, new EpochDateConverter()).create();
+    }
+
+    private static GsonBuilder builder() {
+        return new GsonBuilder()
+                .registerTypeAdapterFactory(new OfferTypeAdapterFactory())
+                .registerTypeAdapterFactory(new TradeTypeAdapterFactory())
+                .registerTypeAdapterFactory(new BadgeTypeAdapterFactory())
+                .registerTypeAdapterFactory(new PaymentDetailsTypeAdapterFactory());
+    }
+}
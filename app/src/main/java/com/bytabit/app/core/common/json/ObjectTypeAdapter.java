@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Base for streaming, reflection free type adapters of model objects. Null properties are not
+ * written and unknown properties are skipped, the same as gson's reflective adapters.
+ */
+@Slf4j
+public abstract class ObjectTypeAdapter<T> extends TypeAdapter<T> {
+
+    @Override
+    public void write(JsonWriter out, T value) throws IOException {
+
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeProperties(out, value);
+        out.endObject();
+    }
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        T value = newInstance();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (!readProperty(in, name, value)) {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return value;
+    }
+
+    protected abstract T newInstance();
+
+    protected abstract void writeProperties(JsonWriter out, T value) throws IOException;
+
+    /**
+     * Read the current property value into the object.
+     *
+     * @return false if the property is unknown and its value was not read
+     */
+    protected abstract boolean readProperty(JsonReader in, String name, T value) throws IOException;
+
+    protected static void write(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    protected static void write(JsonWriter out, String name, Number value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    protected static void write(JsonWriter out, String name, Boolean value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    protected static void write(JsonWriter out, String name, Enum<?> value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value.name());
+        }
+    }
+
+    // write using the adapter for the runtime type, so subclasses such as signed offers keep their properties
+    @SuppressWarnings("unchecked")
+    protected static <V> void write(Gson gson, JsonWriter out, String name, V value) throws IOException {
+        if (value != null) {
+            out.name(name);
+            ((TypeAdapter<V>) gson.getAdapter(value.getClass())).write(out, value);
+        }
+    }
+
+    protected static BigDecimal readDecimal(JsonReader in) throws IOException {
+        try {
+            return new BigDecimal(in.nextString());
+        } catch (NumberFormatException nfe) {
+            throw new JsonParseException(nfe);
+        }
+    }
+
+    protected interface Setter<V> {
+        void set(V value);
+    }
+
+    // unknown constants are left unset, properties can't be set to null
+    protected static <E extends Enum<E>> void readEnum(JsonReader in, Class<E> enumClass, Setter<E> setter) throws IOException {
+        E value = readEnum(in, enumClass);
+        if (value != null) {
+            setter.set(value);
+        }
+    }
+
+    // unknown constants, for example from newer peers, are read as null the same as gson's enum adapter
+    protected static <E extends Enum<E>> E readEnum(JsonReader in, Class<E> enumClass) throws IOException {
+        String name = in.nextString();
+        try {
+            return Enum.valueOf(enumClass, name);
+        } catch (IllegalArgumentException iae) {
+            log.debug("Unknown {}: {}", enumClass.getSimpleName(), name);
+            return null;
+        }
+    }
+}
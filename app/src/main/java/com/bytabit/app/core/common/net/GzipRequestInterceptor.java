@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.net;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * Gzip compresses request bodies large enough to benefit, only add it for servers that accept
+ * compressed requests. Responses are already decompressed by okhttp when it adds the
+ * Accept-Encoding header itself.
+ */
+public class GzipRequestInterceptor implements Interceptor {
+
+    // smaller bodies, or bodies of unknown length, are sent as is
+    static final long MIN_GZIP_LENGTH = 1024;
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+
+        Request request = chain.request();
+        if (request.body() == null || request.header("Content-Encoding") != null
+                || request.body().contentLength() < MIN_GZIP_LENGTH) {
+            return chain.proceed(request);
+        }
+
+        Request compressedRequest = request.newBuilder()
+                .header("Content-Encoding", "gzip")
+                .method(request.method(), gzip(request.body()))
+                .build();
+        return chain.proceed(compressedRequest);
+    }
+
+    private RequestBody gzip(RequestBody body) {
+
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() {
+                // unknown until compressed
+                return -1;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+                body.writeTo(gzipSink);
+                gzipSink.close();
+            }
+        };
+    }
+}
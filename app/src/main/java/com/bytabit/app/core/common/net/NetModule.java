@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.net;
+
+import com.bytabit.app.core.common.AppConfig;
+import com.bytabit.app.core.common.json.GsonFactory;
+import com.google.gson.Gson;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Singleton;
+
+import dagger.Module;
+import dagger.Provides;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Provides the http client and gson shared by all services, so connections and TLS sessions to
+ * the server are reused by every polling loop.
+ */
+@Module
+public class NetModule {
+
+    private static final long CONNECT_TIMEOUT_SECONDS = 15;
+
+    private static final long READ_TIMEOUT_SECONDS = 30;
+
+    private static final long WRITE_TIMEOUT_SECONDS = 30;
+
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static final int MAX_REQUESTS = 16;
+
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+
+    @Provides
+    @Singleton
+    static OkHttpClient provideHttpClient(AppConfig appConfig) {
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // not every server accepts compressed request bodies
+        if (appConfig.isGzipRequests()) {
+            builder.addInterceptor(new GzipRequestInterceptor());
+        }
+        return builder.build();
+    }
+
+    @Provides
+    @Singleton
+    static Gson provideGson() {
+        return GsonFactory.create();
+    }
+}
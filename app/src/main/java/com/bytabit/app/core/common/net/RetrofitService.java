@@ -17,35 +17,98 @@
 package com.bytabit.app.core.common.net;
 
 import com.bytabit.app.core.common.AppConfig;
-import com.bytabit.app.core.common.json.DateConverter;
+import com.bytabit.app.core.common.LruCache;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 
-import java.util.Date;
+import java.lang.reflect.Type;
 
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import okhttp3.OkHttpClient;
+import retrofit2.HttpException;
+import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public abstract class RetrofitService {
 
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    private static final int MAX_CONDITIONAL_ENTRIES = 256;
+
     protected final Retrofit retrofit;
     protected final Gson gson;
     protected final boolean isRegtest;
 
-    public RetrofitService(AppConfig appConfig) {
+    // last verified value and its etag for each conditional get key
+    private final LruCache<String, ConditionalEntry> conditionalEntries = new LruCache<>(MAX_CONDITIONAL_ENTRIES);
 
-        gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .registerTypeAdapter(Date.class, new DateConverter())
-                .create();
+    public RetrofitService(AppConfig appConfig, OkHttpClient httpClient, Gson gson) {
 
+        this.gson = gson;
+
+        // async calls, so concurrent requests are bounded by the client's dispatcher
         retrofit = new Retrofit.Builder()
                 .baseUrl(appConfig.getBaseUrl())
+                .client(httpClient)
                 .addConverterFactory(GsonConverterFactory.create(gson))
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.createAsync())
                 .build();
 
         isRegtest = appConfig.getBtcNetwork().equals("regtest");
     }
+
+    /**
+     * Get with If-None-Match set to the etag of the last response for the key. If the server
+     * responds not modified a copy of the value cached for the key is returned, it was already verified
+     * when first received. Other successful responses are verified and cached if they have an etag.
+     * Values are cached as json trees of the given type so callers can change the values they get.
+     */
+    protected <B, R> Single<R> conditionalGet(String key, Type valueType, Function<String, Single<Response<B>>> request,
+                                              Function<B, Single<R>> verify) {
+
+        return Single.defer(() -> {
+            ConditionalEntry cached = conditionalEntries.get(key);
+            return request.apply(cached != null ? cached.eTag : null).flatMap(response -> {
+                if (response.code() == HTTP_NOT_MODIFIED && cached != null) {
+                    return Single.just(gson.<R>fromJson(cached.value, valueType));
+                } else if (response.isSuccessful()) {
+                    String eTag = response.headers().get("ETag");
+                    return verify.apply(response.body()).doOnSuccess(value -> {
+                        if (eTag != null) {
+                            conditionalEntries.put(key, new ConditionalEntry(eTag, gson.toJsonTree(value, valueType)));
+                        } else {
+                            conditionalEntries.remove(key);
+                        }
+                    });
+                } else {
+                    return Single.error(new HttpException(response));
+                }
+            });
+        });
+    }
+
+    // true if the server doesn't provide the requested endpoint or resource, so retrying won't help
+    public static boolean isUnsupported(Throwable t) {
+
+        if (t instanceof HttpException) {
+            int code = ((HttpException) t).code();
+            return code == 404 || code == 405 || code == 410 || code == 501;
+        }
+        return false;
+    }
+
+    private static class ConditionalEntry {
+
+        private final String eTag;
+
+        private final JsonElement value;
+
+        private ConditionalEntry(String eTag, JsonElement value) {
+            this.eTag = eTag;
+            this.value = value;
+        }
+    }
 }
@@ -18,6 +18,8 @@ package com.bytabit.app.core.offer.manager;
 
 import com.bytabit.app.core.badge.manager.BadgeManager;
 import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.offer.model.OfferChange;
+import com.bytabit.app.core.offer.model.OfferChanges;
 import com.bytabit.app.core.payment.model.CurrencyCode;
 import com.bytabit.app.core.payment.model.PaymentMethod;
 import com.bytabit.app.core.trade.manager.TradeManager;
@@ -26,14 +28,16 @@ import com.bytabit.app.core.wallet.manager.WalletManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
@@ -57,6 +61,16 @@ public class OfferManager {
 
     private final BadgeManager badgeManager;
 
+    // kept up to date with offer changes since the sync cursor
+    private final OrderBook orderBook = new OrderBook();
+
+    private String offerSyncCursor;
+
+    private boolean offerBookSynced = false;
+
+    // changes applied to the offer book by each sync
+    private final Observable<List<OfferChange>> offerBookChanges;
+
     @Inject
     public OfferManager(WalletManager walletManager, TradeManager tradeManager,
                         BadgeManager badgeManager, OfferService offerService, OfferStorage offerStorage) {
@@ -67,6 +81,12 @@ public class OfferManager {
         this.offerService = offerService;
         this.offerStorage = offerStorage;
         selectedOfferSubject = BehaviorSubject.create();
+
+        offerBookChanges = Observable.interval(0, 30, TimeUnit.SECONDS, Schedulers.io())
+                .concatMapMaybe(tick -> syncOfferBook())
+                .doOnError(t -> log.error("sync offer book error: {}", t.getMessage()))
+                .retryWhen(errors -> errors.flatMap(e -> Observable.timer(30, TimeUnit.SECONDS, Schedulers.io())))
+                .share();
     }
 
     public Observable<Trade> getAddedTrades() {
@@ -87,23 +107,65 @@ public class OfferManager {
                 .flatMapMaybe(o -> offerService.put(o).toMaybe().onErrorResumeNext(Maybe.empty()));
     }
 
+    // all offers in the offer book after each sync
     public Observable<List<Offer>> getOffers() {
-        return Observable.interval(0, 30, TimeUnit.SECONDS, Schedulers.io())
-                .flatMapSingle(tick -> getStoredAndLoadedOffers()).replay(1).autoConnect();
+        return offerBookChanges.map(changes -> getBookOffers())
+                .startWith(Maybe.fromCallable(this::getSyncedBookOffers).toObservable())
+                .replay(1).autoConnect();
+    }
+
+    // offers updated or deleted in the offer book
+    public Observable<OfferChange> getOfferChanges() {
+        return offerBookChanges.flatMapIterable(changes -> changes);
+    }
+
+    // get offers changed on the server since the last sync, invalid offers are already filtered out
+    private Maybe<List<OfferChange>> syncOfferBook() {
+
+        Single<OfferChanges> serverChanges = Single.defer(() -> offerService.getChanges(getOfferSyncCursor()));
+
+        return walletManager.getProfilePubKeyBase58()
+                .flatMapSingleElement(profilePubKey -> offerStorage.getAll()
+                        .flatMap(storedOffers -> serverChanges
+                                .map(changes -> applyOfferChanges(profilePubKey, storedOffers, changes))));
     }
 
-    // get offers from storage and server, filter out any that have invalid signatures
-    private Single<List<Offer>> getStoredAndLoadedOffers() {
-        return offerStorage.getAll().flattenAsObservable(o -> o)
-                .concatWith(offerService.getAll().retryWhen(errors ->
-                        errors.flatMap(e -> Flowable.timer(100, TimeUnit.SECONDS)))
-                        .flattenAsObservable(o -> o))
-                .distinct(Offer::getId)
-                .withLatestFrom(walletManager.getProfilePubKeyBase58().toObservable(), (o, pubKey) -> {
-                    o.setIsMine(o.getMakerProfilePubKey().equals(pubKey));
-                    return o;
-                })
-                .toList();
+    // stored offers are mine and take precedence over the same offers from the server
+    private synchronized List<OfferChange> applyOfferChanges(String profilePubKey, List<Offer> storedOffers,
+                                                             OfferChanges changes) {
+
+        Set<String> storedIds = new HashSet<>();
+        List<Offer> updated = new ArrayList<>(storedOffers);
+        for (Offer storedOffer : storedOffers) {
+            storedIds.add(storedOffer.getId());
+        }
+        for (Offer offer : changes.getUpdated()) {
+            if (!storedIds.contains(offer.getId())) {
+                updated.add(offer);
+            }
+        }
+
+        for (Offer offer : updated) {
+            offer.setIsMine(offer.getMakerProfilePubKey().equals(profilePubKey));
+        }
+        List<OfferChange> applied = orderBook.apply(updated, changes.getDeleted(), changes.isSnapshot());
+
+        offerSyncCursor = changes.getCursor();
+        offerBookSynced = true;
+        return applied;
+    }
+
+    private synchronized String getOfferSyncCursor() {
+        return offerSyncCursor;
+    }
+
+    private List<Offer> getBookOffers() {
+        return orderBook.getAll();
+    }
+
+    // null until the first sync
+    private synchronized List<Offer> getSyncedBookOffers() {
+        return offerBookSynced ? getBookOffers() : null;
     }
 
     public Single<Offer> createOffer(Offer.OfferType offerType,
@@ -174,6 +236,37 @@ public class OfferManager {
                 .doOnNext(o -> log.debug("getSelectedOffer: {}", o));
     }
 
+    /**
+     * Find offers, not made by me, that can be traded for the btc amount with the best price first.
+     */
+    public Single<List<Offer>> findMatchingOffers(CurrencyCode currencyCode, PaymentMethod paymentMethod,
+                                                  Offer.OfferType offerType, BigDecimal btcAmount, int limit) {
+
+        if (btcAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            return Single.error(new OfferException("Trade amount must be greater than zero."));
+        }
+        return walletManager.getProfilePubKeyBase58().toSingle()
+                .map(profilePubKey -> orderBook.getFillable(currencyCode, paymentMethod, offerType,
+                        btcAmount, profilePubKey, limit));
+    }
+
+    public Maybe<Offer> findBestMatchingOffer(CurrencyCode currencyCode, PaymentMethod paymentMethod,
+                                              Offer.OfferType offerType, BigDecimal btcAmount) {
+
+        return findMatchingOffers(currencyCode, paymentMethod, offerType, btcAmount, 1)
+                .flatMapMaybe(offers -> offers.isEmpty() ? Maybe.<Offer>empty() : Maybe.just(offers.get(0)));
+    }
+
+    // create a trade with the best matching offer
+    public Maybe<Trade> createMatchingTrade(CurrencyCode currencyCode, PaymentMethod paymentMethod,
+                                            Offer.OfferType offerType, BigDecimal btcAmount) {
+
+        return findBestMatchingOffer(currencyCode, paymentMethod, offerType, btcAmount)
+                .switchIfEmpty(Maybe.error(new OfferException(String.format("No %s offer found for %s BTC in %s.",
+                        offerType.toString().toLowerCase(), btcAmount, currencyCode))))
+                .flatMap(offer -> tradeManager.createTrade(offer, btcAmount));
+    }
+
     public Maybe<Trade> createTrade(BigDecimal btcAmount) {
         if (btcAmount.compareTo(BigDecimal.ZERO) <= 0) {
             return Maybe.error(new OfferException("Trade amount must be greater than zero."));
@@ -19,30 +19,44 @@ package com.bytabit.app.core.offer.manager;
 import com.bytabit.app.core.common.AppConfig;
 import com.bytabit.app.core.common.net.RetrofitService;
 import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.offer.model.OfferChanges;
 import com.bytabit.app.core.offer.model.SignedOffer;
 import com.bytabit.app.core.wallet.manager.WalletManager;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 
 import org.bitcoinj.core.Sha256Hash;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import retrofit2.HttpException;
 
 @Singleton
 @Slf4j
 public class OfferService extends RetrofitService {
 
+    private static final int MIN_VERIFY_CHUNK_SIZE = 16;
+
+    private static final Type SIGNED_OFFERS_TYPE = new TypeToken<List<SignedOffer>>() {
+    }.getType();
+
     private final OfferServiceApi offerServiceApi;
     private final WalletManager walletManager;
 
     @Inject
-    public OfferService(AppConfig appConfig, WalletManager walletManager) {
-        super(appConfig);
+    public OfferService(AppConfig appConfig, OkHttpClient httpClient, Gson gson, WalletManager walletManager) {
+        super(appConfig, httpClient, gson);
         this.walletManager = walletManager;
         // create an instance of the ApiService
         this.offerServiceApi = retrofit.create(OfferServiceApi.class);
@@ -57,9 +71,71 @@ public class OfferService extends RetrofitService {
     }
 
     Single<List<SignedOffer>> getAll() {
-        return offerServiceApi.get()
-                .doOnError(t -> log.error("get error: {}", t.getMessage()))
-                .flattenAsObservable(so -> so)
+        return conditionalGet("/offers", SIGNED_OFFERS_TYPE, offerServiceApi::getAll, this::validSignedOffers)
+                .doOnError(t -> log.error("get error: {}", t.getMessage()));
+    }
+
+    // get offers changed since the cursor, updated offers with invalid signatures are dropped,
+    // falls back to all offers if the server has no changes or doesn't know the cursor
+    Single<OfferChanges> getChanges(String cursor) {
+        return offerServiceApi.getChanges(cursor)
+                .doOnError(t -> log.error("get changes error: {}", t.getMessage()))
+                .onErrorResumeNext(t -> {
+                    if (isUnsupported(t) || (cursor != null && isBadRequest(t))) {
+                        log.warn("Offer changes since {} unavailable, getting all offers", cursor);
+                        return getAll().map(offers -> OfferChanges.builder()
+                                .updated(offers)
+                                .deleted(new ArrayList<>())
+                                .snapshot(true)
+                                .build());
+                    }
+                    return Single.error(t);
+                })
+                .flatMap(changes -> {
+                    if (changes.isSnapshot()) {
+                        return Single.just(changes);
+                    }
+                    if (changes.getDeleted() == null) {
+                        changes.setDeleted(new ArrayList<>());
+                    }
+                    if (changes.getUpdated() == null) {
+                        changes.setUpdated(new ArrayList<>());
+                        return Single.just(changes);
+                    }
+                    return validSignedOffers(changes.getUpdated()).map(validUpdated -> {
+                        changes.setUpdated(validUpdated);
+                        return changes;
+                    });
+                });
+    }
+
+    private static boolean isBadRequest(Throwable t) {
+        return t instanceof HttpException && ((HttpException) t).code() == 400;
+    }
+
+    // verify signatures in parallel chunks on the computation scheduler, keep the order of valid offers
+    private Single<List<SignedOffer>> validSignedOffers(List<SignedOffer> signedOffers) {
+
+        int chunkSize = Math.max(MIN_VERIFY_CHUNK_SIZE,
+                (signedOffers.size() + Runtime.getRuntime().availableProcessors() - 1) / Runtime.getRuntime().availableProcessors());
+
+        return Observable.fromIterable(signedOffers)
+                .buffer(chunkSize)
+                .concatMapEager(chunk -> Observable.fromIterable(chunk)
+                        .filter(signedOffer -> {
+                            boolean isValid;
+                            try {
+                                isValid = validateSignedOfferSignature(signedOffer);
+                            } catch (RuntimeException re) {
+                                // malformed key or signature
+                                isValid = false;
+                            }
+                            if (!isValid) {
+                                log.warn("Invalid signature for offer: {}", signedOffer.getId());
+                            }
+                            return isValid;
+                        })
+                        .subscribeOn(Schedulers.computation()))
                 .toList();
     }
 
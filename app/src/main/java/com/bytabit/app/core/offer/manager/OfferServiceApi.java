@@ -16,16 +16,20 @@
 
 package com.bytabit.app.core.offer.manager;
 
+import com.bytabit.app.core.offer.model.OfferChanges;
 import com.bytabit.app.core.offer.model.SignedOffer;
 
 import java.util.List;
 
 import io.reactivex.Single;
+import retrofit2.Response;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 public interface OfferServiceApi {
 
@@ -33,7 +37,11 @@ public interface OfferServiceApi {
     Single<SignedOffer> put(@Path("id") String id, @Body SignedOffer signedOffer);
 
     @GET("/offers")
-    Single<List<SignedOffer>> get();
+    Single<Response<List<SignedOffer>>> getAll(@Header("If-None-Match") String eTag);
+
+    // all offers if since is null
+    @GET("/offers/changes")
+    Single<OfferChanges> getChanges(@Query("since") String since);
 
     @GET("/offers/{id}")
     Single<SignedOffer> get(@Path("id") String id);
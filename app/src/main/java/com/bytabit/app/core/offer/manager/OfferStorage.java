@@ -31,4 +31,9 @@ public class OfferStorage extends EntityFileStorage<Offer> {
     public OfferStorage(AppConfig appConfig) {
         super(appConfig, Offer.class);
     }
+
+    @Override
+    protected Offer copy(Offer offer) {
+        return offer.copyBuilder().build();
+    }
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.offer.manager;
+
+import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.offer.model.OfferChange;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import lombok.Value;
+
+/**
+ * Offers indexed by id and sorted by price for each currency code, payment method and offer type.
+ * Prices are sorted best first: lowest first for sell offers and highest first for buy offers.
+ */
+public class OrderBook {
+
+    // all offers in the order they were first added, with the key and price they are sorted by
+    private final Map<String, IndexedOffer> offers = new LinkedHashMap<>();
+
+    private final Map<BookKey, NavigableMap<BigDecimal, Map<String, Offer>>> books = new HashMap<>();
+
+    /**
+     * Add or replace the offer with the same id.
+     *
+     * @return the replaced offer or null
+     */
+    public synchronized Offer put(Offer offer) {
+
+        BookKey key = new BookKey(offer.getCurrencyCode(), offer.getPaymentMethod(), offer.getOfferType());
+        IndexedOffer previous = offers.put(offer.getId(), new IndexedOffer(offer, key, offer.getPrice()));
+        if (previous != null) {
+            removeFromBook(previous);
+        }
+
+        NavigableMap<BigDecimal, Map<String, Offer>> book = books.get(key);
+        if (book == null) {
+            book = Offer.OfferType.SELL.equals(offer.getOfferType())
+                    ? new TreeMap<BigDecimal, Map<String, Offer>>()
+                    : new TreeMap<BigDecimal, Map<String, Offer>>(Collections.reverseOrder());
+            books.put(key, book);
+        }
+        Map<String, Offer> atPrice = book.get(offer.getPrice());
+        if (atPrice == null) {
+            atPrice = new LinkedHashMap<>();
+            book.put(offer.getPrice(), atPrice);
+        }
+        atPrice.put(offer.getId(), offer);
+        return previous != null ? previous.getOffer() : null;
+    }
+
+    /**
+     * @return the removed offer or null
+     */
+    public synchronized Offer remove(String id) {
+
+        IndexedOffer removed = offers.remove(id);
+        if (removed == null) {
+            return null;
+        }
+        removeFromBook(removed);
+        return removed.getOffer();
+    }
+
+    /**
+     * Put updated offers and remove deleted ones, for a snapshot every offer not in updated is removed.
+     *
+     * @return the changes to the order book
+     */
+    public synchronized List<OfferChange> apply(List<Offer> updated, List<String> deleted, boolean snapshot) {
+
+        List<OfferChange> applied = new ArrayList<>();
+        Set<String> updatedIds = new HashSet<>();
+        for (Offer offer : updated) {
+            updatedIds.add(offer.getId());
+            Offer previous = put(offer);
+            if (!offer.equals(previous)) {
+                applied.add(new OfferChange(OfferChange.Type.UPDATED, offer.getId(), offer));
+            }
+        }
+
+        List<String> removedIds = new ArrayList<>(deleted);
+        if (snapshot) {
+            for (String id : offers.keySet()) {
+                if (!updatedIds.contains(id)) {
+                    removedIds.add(id);
+                }
+            }
+        }
+        for (String id : removedIds) {
+            if (remove(id) != null) {
+                applied.add(new OfferChange(OfferChange.Type.DELETED, id, null));
+            }
+        }
+        return applied;
+    }
+
+    public synchronized Offer get(String id) {
+        IndexedOffer indexed = offers.get(id);
+        return indexed != null ? indexed.getOffer() : null;
+    }
+
+    public synchronized List<Offer> getAll() {
+        List<Offer> all = new ArrayList<>(offers.size());
+        for (IndexedOffer indexed : offers.values()) {
+            all.add(indexed.getOffer());
+        }
+        return all;
+    }
+
+    public synchronized int size() {
+        return offers.size();
+    }
+
+    /**
+     * @return offers with the best price first
+     */
+    public synchronized List<Offer> getOffers(CurrencyCode currencyCode, PaymentMethod paymentMethod,
+                                              Offer.OfferType offerType) {
+
+        NavigableMap<BigDecimal, Map<String, Offer>> book = books.get(new BookKey(currencyCode, paymentMethod, offerType));
+        return book != null ? flatten(book) : Collections.emptyList();
+    }
+
+    /**
+     * @return an offer with the best price or null if there are no offers
+     */
+    public synchronized Offer getBest(CurrencyCode currencyCode, PaymentMethod paymentMethod,
+                                      Offer.OfferType offerType) {
+
+        NavigableMap<BigDecimal, Map<String, Offer>> book = books.get(new BookKey(currencyCode, paymentMethod, offerType));
+        if (book == null || book.isEmpty()) {
+            return null;
+        }
+        return book.firstEntry().getValue().values().iterator().next();
+    }
+
+    /**
+     * @return offers with prices from the best price up to and including the limit price, best
+     * price first
+     */
+    public synchronized List<Offer> getOffersUpToPrice(CurrencyCode currencyCode, PaymentMethod paymentMethod,
+                                                       Offer.OfferType offerType, BigDecimal limitPrice) {
+
+        NavigableMap<BigDecimal, Map<String, Offer>> book = books.get(new BookKey(currencyCode, paymentMethod, offerType));
+        return book != null ? flatten(book.headMap(limitPrice, true)) : Collections.emptyList();
+    }
+
+    /**
+     * @return offers that can be traded for the btc amount, best price first
+     */
+    public List<Offer> getFillable(CurrencyCode currencyCode, PaymentMethod paymentMethod,
+                                   Offer.OfferType offerType, BigDecimal btcAmount) {
+
+        return getFillable(currencyCode, paymentMethod, offerType, btcAmount, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param excludedMakerProfilePubKey offers from this maker are not returned, may be null
+     * @param limit                      maximum number of offers returned
+     * @return offers that can be traded for the btc amount, best price first
+     */
+    public synchronized List<Offer> getFillable(CurrencyCode currencyCode, PaymentMethod paymentMethod,
+                                                Offer.OfferType offerType, BigDecimal btcAmount,
+                                                String excludedMakerProfilePubKey, int limit) {
+
+        List<Offer> fillable = new ArrayList<>();
+        NavigableMap<BigDecimal, Map<String, Offer>> book = books.get(new BookKey(currencyCode, paymentMethod, offerType));
+        if (book == null) {
+            return fillable;
+        }
+        for (Map<String, Offer> atPrice : book.values()) {
+            for (Offer offer : atPrice.values()) {
+                if (!offer.getMakerProfilePubKey().equals(excludedMakerProfilePubKey) && canFill(offer, btcAmount)) {
+                    fillable.add(offer);
+                    if (fillable.size() >= limit) {
+                        return fillable;
+                    }
+                }
+            }
+        }
+        return fillable;
+    }
+
+    // same amount limits as checked when a trade is created
+    static boolean canFill(Offer offer, BigDecimal btcAmount) {
+
+        CurrencyCode currencyCode = offer.getCurrencyCode();
+        BigDecimal currencyAmount = offer.getPrice().multiply(btcAmount)
+                .setScale(currencyCode.getScale(), RoundingMode.HALF_UP);
+
+        return currencyAmount.compareTo(offer.getMinAmount()) >= 0
+                && currencyAmount.compareTo(offer.getMaxAmount()) <= 0
+                && currencyAmount.compareTo(currencyCode.getMaxTradeAmount()) <= 0;
+    }
+
+    private void removeFromBook(IndexedOffer indexed) {
+
+        NavigableMap<BigDecimal, Map<String, Offer>> book = books.get(indexed.getKey());
+        Map<String, Offer> atPrice = book.get(indexed.getPrice());
+        atPrice.remove(indexed.getOffer().getId());
+        if (atPrice.isEmpty()) {
+            book.remove(indexed.getPrice());
+        }
+        if (book.isEmpty()) {
+            books.remove(indexed.getKey());
+        }
+    }
+
+    private List<Offer> flatten(NavigableMap<BigDecimal, Map<String, Offer>> book) {
+
+        List<Offer> sorted = new ArrayList<>();
+        for (Map<String, Offer> atPrice : book.values()) {
+            sorted.addAll(atPrice.values());
+        }
+        return sorted;
+    }
+
+    @Value
+    private static class BookKey {
+
+        private final CurrencyCode currencyCode;
+
+        private final PaymentMethod paymentMethod;
+
+        private final Offer.OfferType offerType;
+    }
+
+    @Value
+    private static class IndexedOffer {
+
+        private final Offer offer;
+
+        private final BookKey key;
+
+        private final BigDecimal price;
+    }
+}
@@ -16,7 +16,9 @@
 
 package com.bytabit.app.core.offer.model;
 
+import com.bytabit.app.core.common.CachedHash;
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 import com.bytabit.app.core.common.file.Entity;
 import com.bytabit.app.core.payment.model.CurrencyCode;
 import com.bytabit.app.core.payment.model.PaymentMethod;
@@ -26,12 +28,15 @@ import org.bitcoinj.core.Sha256Hash;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import lombok.ToString;
 
 @NoArgsConstructor
 @AllArgsConstructor
@@ -71,14 +76,78 @@ public class Offer implements Entity {
 
     private transient Boolean isMine;
 
+    // cleared when a hashed property is set
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient CachedHash cachedHash = new CachedHash();
+
+    public void setOfferType(@NonNull OfferType offerType) {
+        this.offerType = offerType;
+        cachedHash.clear();
+    }
+
+    public void setMakerProfilePubKey(@NonNull String makerProfilePubKey) {
+        this.makerProfilePubKey = makerProfilePubKey;
+        cachedHash.clear();
+    }
+
+    public void setCurrencyCode(@NonNull CurrencyCode currencyCode) {
+        this.currencyCode = currencyCode;
+        cachedHash.clear();
+    }
+
+    public void setPaymentMethod(@NonNull PaymentMethod paymentMethod) {
+        this.paymentMethod = paymentMethod;
+        cachedHash.clear();
+    }
+
+    public void setMinAmount(@NonNull BigDecimal minAmount) {
+        this.minAmount = minAmount;
+        cachedHash.clear();
+    }
+
+    public void setMaxAmount(@NonNull BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+        cachedHash.clear();
+    }
+
+    public void setPrice(@NonNull BigDecimal price) {
+        this.price = price;
+        cachedHash.clear();
+    }
+
+    public Offer.OfferBuilder copyBuilder() {
+
+        return Offer.builder()
+                .id(this.id)
+                .offerType(this.offerType)
+                .makerProfilePubKey(this.makerProfilePubKey)
+                .currencyCode(this.currencyCode)
+                .paymentMethod(this.paymentMethod)
+                .minAmount(this.minAmount)
+                .maxAmount(this.maxAmount)
+                .price(this.price)
+                .isMine(this.isMine);
+    }
+
     public Sha256Hash sha256Hash() {
 
         CurrencyCode currencyCode = getCurrencyCode();
 
-        return HashUtils.sha256Hash(getOfferType(), getMakerProfilePubKey(),
-                getCurrencyCode(), getPaymentMethod(),
-                getMinAmount().setScale(currencyCode.getScale(), RoundingMode.HALF_UP),
-                getMaxAmount().setScale(currencyCode.getScale(), RoundingMode.HALF_UP),
-                getPrice().setScale(currencyCode.getScale(), RoundingMode.HALF_UP));
+        Sha256Hash hash = cachedHash.get();
+        if (hash == null) {
+            try (Sha256Hasher hasher = HashUtils.hasher()) {
+                hash = cachedHash.set(hasher
+                        .put(getOfferType())
+                        .put(getMakerProfilePubKey())
+                        .put(currencyCode)
+                        .put(getPaymentMethod())
+                        .put(getMinAmount().setScale(currencyCode.getScale(), RoundingMode.HALF_UP), cachedHash)
+                        .put(getMaxAmount().setScale(currencyCode.getScale(), RoundingMode.HALF_UP), cachedHash)
+                        .put(getPrice().setScale(currencyCode.getScale(), RoundingMode.HALF_UP), cachedHash)
+                        .hash());
+            }
+        }
+        return hash;
     }
 }
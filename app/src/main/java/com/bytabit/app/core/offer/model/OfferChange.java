@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.offer.model;
+
+import lombok.Value;
+
+/**
+ * Change to the offer book, the offer is null for deletes.
+ */
+@Value
+public class OfferChange {
+
+    public enum Type {
+        UPDATED, DELETED
+    }
+
+    private final Type type;
+
+    private final String id;
+
+    private final Offer offer;
+}
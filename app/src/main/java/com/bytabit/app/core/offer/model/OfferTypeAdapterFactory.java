@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.offer.model;
+
+import com.bytabit.app.core.common.json.ObjectTypeAdapter;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+public class OfferTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Offer.class) {
+            return (TypeAdapter<T>) new OfferTypeAdapter<>(Offer::new);
+        } else if (rawType == SignedOffer.class) {
+            return (TypeAdapter<T>) new SignedOfferTypeAdapter();
+        } else if (rawType == OfferChanges.class) {
+            return (TypeAdapter<T>) new OfferChangesTypeAdapter(gson);
+        }
+        return null;
+    }
+
+    private interface OfferSupplier<T extends Offer> {
+        T get();
+    }
+
+    private static class OfferTypeAdapter<T extends Offer> extends ObjectTypeAdapter<T> {
+
+        private final OfferSupplier<T> supplier;
+
+        private OfferTypeAdapter(OfferSupplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        protected T newInstance() {
+            return supplier.get();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, T offer) throws IOException {
+            write(out, "id", offer.getId());
+            write(out, "offerType", offer.getOfferType());
+            write(out, "makerProfilePubKey", offer.getMakerProfilePubKey());
+            write(out, "currencyCode", offer.getCurrencyCode());
+            write(out, "paymentMethod", offer.getPaymentMethod());
+            write(out, "minAmount", offer.getMinAmount());
+            write(out, "maxAmount", offer.getMaxAmount());
+            write(out, "price", offer.getPrice());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, T offer) throws IOException {
+            switch (name) {
+                case "id":
+                    offer.setId(in.nextString());
+                    return true;
+                case "offerType":
+                    readEnum(in, Offer.OfferType.class, offer::setOfferType);
+                    return true;
+                case "makerProfilePubKey":
+                    offer.setMakerProfilePubKey(in.nextString());
+                    return true;
+                case "currencyCode":
+                    readEnum(in, CurrencyCode.class, offer::setCurrencyCode);
+                    return true;
+                case "paymentMethod":
+                    readEnum(in, PaymentMethod.class, offer::setPaymentMethod);
+                    return true;
+                case "minAmount":
+                    offer.setMinAmount(readDecimal(in));
+                    return true;
+                case "maxAmount":
+                    offer.setMaxAmount(readDecimal(in));
+                    return true;
+                case "price":
+                    offer.setPrice(readDecimal(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class SignedOfferTypeAdapter extends OfferTypeAdapter<SignedOffer> {
+
+        private SignedOfferTypeAdapter() {
+            super(SignedOffer::new);
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, SignedOffer signedOffer) throws IOException {
+            write(out, "signature", signedOffer.getSignature());
+            super.writeProperties(out, signedOffer);
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, SignedOffer signedOffer) throws IOException {
+            if ("signature".equals(name)) {
+                signedOffer.setSignature(in.nextString());
+                return true;
+            }
+            return super.readProperty(in, name, signedOffer);
+        }
+    }
+
+    private static class OfferChangesTypeAdapter extends ObjectTypeAdapter<OfferChanges> {
+
+        private final TypeAdapter<List<SignedOffer>> updatedAdapter;
+
+        private final TypeAdapter<List<String>> deletedAdapter;
+
+        private OfferChangesTypeAdapter(Gson gson) {
+            updatedAdapter = gson.getAdapter(new TypeToken<List<SignedOffer>>() {
+            });
+            deletedAdapter = gson.getAdapter(new TypeToken<List<String>>() {
+            });
+        }
+
+        @Override
+        protected OfferChanges newInstance() {
+            return new OfferChanges();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, OfferChanges offerChanges) throws IOException {
+            write(out, "cursor", offerChanges.getCursor());
+            if (offerChanges.getUpdated() != null) {
+                updatedAdapter.write(out.name("updated"), offerChanges.getUpdated());
+            }
+            if (offerChanges.getDeleted() != null) {
+                deletedAdapter.write(out.name("deleted"), offerChanges.getDeleted());
+            }
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, OfferChanges offerChanges) throws IOException {
+            switch (name) {
+                case "cursor":
+                    offerChanges.setCursor(in.nextString());
+                    return true;
+                case "updated":
+                    offerChanges.setUpdated(updatedAdapter.read(in));
+                    return true;
+                case "deleted":
+                    offerChanges.setDeleted(deletedAdapter.read(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
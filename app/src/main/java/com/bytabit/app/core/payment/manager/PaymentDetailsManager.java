@@ -16,6 +16,7 @@
 
 package com.bytabit.app.core.payment.manager;
 
+import com.bytabit.app.core.common.file.StorageEvent;
 import com.bytabit.app.core.payment.model.PaymentDetails;
 
 import javax.inject.Inject;
@@ -23,17 +24,12 @@ import javax.inject.Singleton;
 
 import io.reactivex.Observable;
 import io.reactivex.subjects.BehaviorSubject;
-import io.reactivex.subjects.PublishSubject;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Singleton
 public class PaymentDetailsManager {
 
-    private final PublishSubject<PaymentDetails> updatedPaymentDetails = PublishSubject.create();
-
-    private final PublishSubject<String> removedPaymentDetails = PublishSubject.create();
-
     private final BehaviorSubject<PaymentDetails> selectedPaymentDetails = BehaviorSubject.create();
 
     private final PaymentDetailsStorage paymentDetailsStorage;
@@ -45,14 +41,12 @@ public class PaymentDetailsManager {
 
     public Observable<PaymentDetails> updatePaymentDetails(PaymentDetails paymentDetails) {
         return Observable.just(paymentDetails)
-                .flatMapSingle(pd -> paymentDetailsStorage.write(paymentDetails))
-                .doOnNext(updatedPaymentDetails::onNext);
+                .flatMapSingle(pd -> paymentDetailsStorage.write(paymentDetails));
     }
 
     public Observable<String> removePaymentDetails(PaymentDetails paymentDetails) {
         return Observable.just(paymentDetails)
-                .flatMapSingle(pd -> paymentDetailsStorage.delete(paymentDetails.getId()))
-                .doOnNext(removedPaymentDetails::onNext);
+                .flatMapSingle(pd -> paymentDetailsStorage.delete(paymentDetails.getId()));
     }
 
     public void setSelectedPaymentDetails(PaymentDetails paymentDetails) {
@@ -68,13 +62,17 @@ public class PaymentDetailsManager {
     }
 
     public Observable<PaymentDetails> getUpdatedPaymentDetails() {
-        return updatedPaymentDetails
+        return paymentDetailsStorage.getEvents()
+                .filter(event -> StorageEvent.Type.UPSERTED.equals(event.getType()))
+                .map(StorageEvent::getEntity)
                 .doOnNext(paymentDetails -> log.debug("Updated: {}", paymentDetails))
                 .share();
     }
 
     public Observable<String> getRemovedPaymentDetails() {
-        return removedPaymentDetails
+        return paymentDetailsStorage.getEvents()
+                .filter(event -> StorageEvent.Type.DELETED.equals(event.getType()))
+                .map(StorageEvent::getId)
                 .doOnNext(paymentDetails -> log.debug("Removed: {}", paymentDetails))
                 .share();
     }
@@ -31,4 +31,9 @@ public class PaymentDetailsStorage extends EntityFileStorage<PaymentDetails> {
     public PaymentDetailsStorage(AppConfig appConfig) {
         super(appConfig, PaymentDetails.class);
     }
+
+    @Override
+    protected PaymentDetails copy(PaymentDetails paymentDetails) {
+        return paymentDetails.copyBuilder().build();
+    }
 }
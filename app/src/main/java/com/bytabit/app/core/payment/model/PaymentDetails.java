@@ -36,4 +36,12 @@ public class PaymentDetails implements Entity {
     private CurrencyCode currencyCode;
     private PaymentMethod paymentMethod;
     private String details;
+
+    public PaymentDetails.PaymentDetailsBuilder copyBuilder() {
+
+        return PaymentDetails.builder()
+                .currencyCode(this.currencyCode)
+                .paymentMethod(this.paymentMethod)
+                .details(this.details);
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.payment.model;
+
+import com.bytabit.app.core.common.json.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * The payment details id is derived from currency code and payment method so it's not written.
+ */
+public class PaymentDetailsTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+
+        if (type.getRawType() == PaymentDetails.class) {
+            return (TypeAdapter<T>) new PaymentDetailsTypeAdapter();
+        }
+        return null;
+    }
+
+    private static class PaymentDetailsTypeAdapter extends ObjectTypeAdapter<PaymentDetails> {
+
+        @Override
+        protected PaymentDetails newInstance() {
+            return new PaymentDetails();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, PaymentDetails paymentDetails) throws IOException {
+            write(out, "currencyCode", paymentDetails.getCurrencyCode());
+            write(out, "paymentMethod", paymentDetails.getPaymentMethod());
+            write(out, "details", paymentDetails.getDetails());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, PaymentDetails paymentDetails) throws IOException {
+            switch (name) {
+                case "currencyCode":
+                    readEnum(in, CurrencyCode.class, paymentDetails::setCurrencyCode);
+                    return true;
+                case "paymentMethod":
+                    readEnum(in, PaymentMethod.class, paymentDetails::setPaymentMethod);
+                    return true;
+                case "details":
+                    paymentDetails.setDetails(in.nextString());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
@@ -27,9 +27,14 @@ import com.bytabit.app.core.wallet.model.TransactionWithAmt;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -72,17 +77,31 @@ public class TradeManager {
 
     private final ArbitratorProtocol arbitratorProtocol;
 
+    // trades in any other status can no longer change
+    private static final List<Trade.Status> ACTIVE_STATUSES = Arrays.asList(
+            CREATED, ACCEPTED, FUNDING, FUNDED, PAID, COMPLETING, CANCELING, ARBITRATING);
+
+    // trades in these statuses also change when their transactions confirm, without a new version
+    private static final List<Trade.Status> CONFIRMING_STATUSES = Arrays.asList(
+            FUNDING, COMPLETING, CANCELING);
+
+    // how often stored trades are checked for being due to poll
+    private static final long SYNC_TICK_SECONDS = 5;
+
     private final TradeService tradeService;
 
     private final TradeStorage tradeStorage;
 
+    private final TradeSyncScheduler tradeSyncScheduler;
+
     private final BehaviorSubject<Trade> selectedTradeSubject;
 
     @Inject
     public TradeManager(WalletManager walletManager, ArbitratorManager arbitratorManager,
                         SellerProtocol sellerProtocol, BuyerProtocol buyerProtocol,
                         ArbitratorProtocol arbitratorProtocol,
-                        TradeService tradeService, TradeStorage tradeStorage) {
+                        TradeService tradeService, TradeStorage tradeStorage,
+                        TradeSyncScheduler tradeSyncScheduler) {
 
         this.walletManager = walletManager;
         this.arbitratorManager = arbitratorManager;
@@ -91,6 +110,7 @@ public class TradeManager {
         this.arbitratorProtocol = arbitratorProtocol;
         this.tradeService = tradeService;
         this.tradeStorage = tradeStorage;
+        this.tradeSyncScheduler = tradeSyncScheduler;
 
         selectedTradeSubject = BehaviorSubject.create();
     }
@@ -115,27 +135,56 @@ public class TradeManager {
         Observable<Trade> updatedArbitrateTrades = isArbitrator().filter(a -> a)
                 .flatMapObservable(a -> walletManager.getProfilePubKey()
                         .flatMap(profilePubKey -> Observable.interval(30, TimeUnit.SECONDS, Schedulers.io())
-                                .flatMapSingle(i -> tradeStorage.getAll().flattenAsObservable(t -> t).map(Trade::getVersion)
-                                        .reduce(0L, (maxVersion, version) -> maxVersion.compareTo(version) >= 0 ? maxVersion : version))
+                                .flatMapSingle(i -> tradeStorage.getMaxVersion())
                                 .flatMapSingle(version -> tradeService.getArbitrate(version - 1).flattenAsObservable(t -> t).toSortedList(tradeVersionComparator))
                                 .flatMapIterable(l -> l)
                                 .flatMapMaybe(trade -> handleReceivedTrade(profilePubKey, trade))));
 
-        // else if not arbitrator get stored trades and received updated trades
+        // else if not arbitrator get trades pushed by the subscription and poll stored trades when the sync
+        // scheduler says they're due, while subscribed only trades waiting for confirmations are polled
         Observable<Trade> updatedNonArbitrateTrades = isArbitrator().filter(a -> !a)
                 .flatMapObservable(a -> walletManager.getProfilePubKey()
-                        .flatMap(profilePubKey -> Observable.interval(15, TimeUnit.SECONDS, Schedulers.io())
-                                .flatMapSingle(i -> tradeStorage.getAll())
-                                .flatMapIterable(trades -> trades)
-                                .flatMapSingle(trade -> tradeService.get(trade.getId(), trade.getVersion() - 1).flattenAsObservable(t -> t).toSortedList(tradeVersionComparator))
-                                .flatMapIterable(l -> l)
-                                .flatMapMaybe(trade -> handleReceivedTrade(profilePubKey, trade))));
+                        .flatMap(profilePubKey -> {
+
+                            Observable<Trade> pushedTrades = tradeStorage.getMaxVersion()
+                                    .flatMapObservable(version -> tradeService.subscribe(profilePubKey, version))
+                                    .flatMapSingle(l -> Observable.fromIterable(l).toSortedList(tradeVersionComparator))
+                                    .<Trade>flatMapIterable(l -> l)
+                                    .doOnNext(trade -> tradeSyncScheduler.resetBackoff(trade.getId()));
+
+                            // changes may have been missed while the subscription was connecting or disconnected
+                            Observable<Boolean> connected = tradeService.isSubscribed()
+                                    .distinctUntilChanged()
+                                    .doOnNext(c -> tradeSyncScheduler.resetBackoff());
+
+                            Observable<Trade> polledTrades = Observable.interval(SYNC_TICK_SECONDS, TimeUnit.SECONDS, Schedulers.io())
+                                    .withLatestFrom(connected, (i, c) -> c)
+                                    .flatMapSingle(subscribed -> tradeStorage.findByStatusIn(subscribed ? CONFIRMING_STATUSES : ACTIVE_STATUSES))
+                                    .map(tradeSyncScheduler::getDue)
+                                    .filter(trades -> !trades.isEmpty())
+                                    .flatMapSingle(trades -> tradeService.get(sinceVersions(trades)).flattenAsObservable(t -> t).toSortedList(tradeVersionComparator))
+                                    .flatMapIterable(l -> l);
+
+                            return pushedTrades.mergeWith(polledTrades)
+                                    .flatMapMaybe(trade -> handleReceivedTrade(profilePubKey, trade));
+                        }));
 
         return updatedArbitrateTrades.mergeWith(updatedNonArbitrateTrades).flatMapSingle(tradeStorage::write)
                 .observeOn(Schedulers.io())
                 .subscribeOn(Schedulers.io());
     }
 
+    // request each trade from the version before its current one, so the current version is returned
+    // again and its transaction confirmations are checked
+    private Map<String, Long> sinceVersions(List<Trade> trades) {
+
+        Map<String, Long> sinceVersions = new LinkedHashMap<>();
+        for (Trade trade : trades) {
+            sinceVersions.put(trade.getId(), trade.getVersion() - 1);
+        }
+        return sinceVersions;
+    }
+
     public Maybe<Trade> createTrade(Offer offer, BigDecimal btcAmount) {
         Maybe<Trade> trade = Maybe.empty();
 
@@ -161,9 +210,16 @@ public class TradeManager {
 
     public Observable<Trade> addTradesCreatedFromOffer(Offer offer) {
 
+        // trades already stored for this offer are updated by getUpdatedTrades
+        Single<Set<String>> storedTradeIds = tradeStorage.findByOfferId(offer.getId())
+                .flattenAsObservable(l -> l)
+                .map(Trade::getId)
+                .<Set<String>>collect(HashSet::new, Set::add);
+
         return walletManager.getProfilePubKey()
-                .flatMap(profilePubKey -> tradeService.getByOfferId(offer.getId(), 0L)
+                .flatMap(profilePubKey -> storedTradeIds.flatMapObservable(stored -> tradeService.getByOfferId(offer.getId(), 0L)
                         .flattenAsObservable(l -> l)
+                        .filter(t -> !stored.contains(t.getId())))
                         .filter(t -> t.getMakerProfilePubKey().equals(profilePubKey))
                         .filter(t -> getStatus(t).equals(CREATED))
                         .flatMapMaybe(trade -> handleReceivedTrade(profilePubKey, trade))
@@ -19,6 +19,7 @@ package com.bytabit.app.core.trade.manager;
 
 import com.bytabit.app.core.arbitrate.manager.ArbitratorManager;
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 import com.bytabit.app.core.offer.model.Offer;
 import com.bytabit.app.core.trade.model.ArbitrateRequest;
 import com.bytabit.app.core.trade.model.Trade;
@@ -180,6 +181,11 @@ abstract class TradeProtocol {
     }
 
     protected Sha256Hash getTradeRequestSignedHash(@NonNull Offer offer, @NonNull TradeRequest tradeRequest) {
-        return HashUtils.sha256Hash(offer.sha256Hash(), tradeRequest.sha256Hash(offer));
+        try (Sha256Hasher hasher = HashUtils.hasher()) {
+            return hasher
+                    .put(offer.sha256Hash())
+                    .put(tradeRequest.sha256Hash(offer))
+                    .hash();
+        }
     }
 }
@@ -20,20 +20,29 @@ import com.bytabit.app.core.common.AppConfig;
 import com.bytabit.app.core.common.CryptoUtils;
 import com.bytabit.app.core.common.CryptoUtilsException;
 import com.bytabit.app.core.common.RetryWithDelay;
+import com.bytabit.app.core.common.codec.BinaryCodec;
+import com.bytabit.app.core.common.codec.Codec;
+import com.bytabit.app.core.common.codec.CodecException;
+import com.bytabit.app.core.common.codec.JsonCodec;
 import com.bytabit.app.core.common.net.RetrofitService;
 import com.bytabit.app.core.trade.model.SignedTrade;
 import com.bytabit.app.core.trade.model.Trade;
 import com.bytabit.app.core.trade.model.TradeModelException;
 import com.bytabit.app.core.trade.model.TradeServiceResource;
+import com.bytabit.app.core.trade.model.TradeVersion;
 import com.bytabit.app.core.wallet.manager.WalletManager;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 
 import org.bitcoinj.core.Base58;
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.Sha256Hash;
 
+import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -43,24 +52,51 @@ import javax.inject.Singleton;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
 
 @Slf4j
 @Singleton
 public class TradeService extends RetrofitService {
 
+    private static final int MAX_SYNC_BATCH_SIZE = 100;
+
+    private static final int RECIPIENT_TAG_LENGTH = 8;
+
+    private static final Type SIGNED_TRADES_TYPE = new TypeToken<List<SignedTrade>>() {
+    }.getType();
+
+    private static final int VERIFY_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
     private final WalletManager walletManager;
     private final TradeServiceApi tradeServiceApi;
     private final CryptoUtils cryptoUtils;
 
+    // trades are sent json encoded so peers on older versions can read them, unless binary trades are enabled
+    private final Codec sendCodec;
+
+    // received trades may be json or binary encoded, the binary codec falls back to json
+    private final Codec receiveCodec;
+
+    private final TradeSubscription tradeSubscription;
+
+    // set once the server responds that it doesn't support the batch sync endpoint
+    private volatile boolean syncUnsupported = false;
+
     @Inject
-    public TradeService(AppConfig appConfig, WalletManager walletManager, CryptoUtils cryptoUtils) {
-        super(appConfig);
+    public TradeService(AppConfig appConfig, OkHttpClient httpClient, Gson gson,
+                        WalletManager walletManager, CryptoUtils cryptoUtils) {
+        super(appConfig, httpClient, gson);
         this.walletManager = walletManager;
         this.cryptoUtils = cryptoUtils;
+        this.receiveCodec = new BinaryCodec();
+        this.sendCodec = appConfig.isBinaryTrades() ? receiveCodec : new JsonCodec(gson);
 
         // create an instance of the ApiService
         this.tradeServiceApi = retrofit.create(TradeServiceApi.class);
+
+        this.tradeSubscription = new TradeSubscription(appConfig.getBaseUrl(), gson, httpClient);
     }
 
     Single<SignedTrade> put(Trade trade) {
@@ -102,91 +138,138 @@ public class TradeService extends RetrofitService {
 
     Single<List<SignedTrade>> getByOfferId(String offerId, Long version) {
 
-        return tradeServiceApi.getByOfferId(offerId, version)
+        return conditionalGet(String.format("/offers/%s/trades?version=%d", offerId, version), SIGNED_TRADES_TYPE,
+                eTag -> tradeServiceApi.getByOfferId(eTag, offerId, version), this::toValidSignedTrades)
                 .retryWhen(new RetryWithDelay(5, 2, TimeUnit.SECONDS))
-                .doOnError(t -> log.error("get error: {}", t.getMessage()))
-                .flatMap(l -> Observable.fromIterable(l)
-                        .flatMapMaybe(tsr -> walletManager.getProfileECKey()
-                                .map(eckey -> toSignedTrade(tsr, eckey))
-                                .onErrorResumeNext(t -> {
-                                    if (t instanceof CryptoUtilsException) {
-                                        return Maybe.empty();
-                                    } else {
-                                        return Maybe.error(t);
-                                    }
-                                }))
-                        .filter(this::validateSignedTradeSignature)
-                        .toList());
+                .doOnError(t -> log.error("get error: {}", t.getMessage()));
     }
 
     Single<List<SignedTrade>> get(String id, Long version) {
 
-        return tradeServiceApi.get(id, version)
+        return getOnce(id, version)
                 .retryWhen(new RetryWithDelay(5, 2, TimeUnit.SECONDS))
-                .doOnError(t -> log.error("get error: {}", t.getMessage()))
-                .flatMap(l -> Observable.fromIterable(l)
-                        .flatMapMaybe(tsr -> walletManager.getProfileECKey()
-                                .map(eckey -> toSignedTrade(tsr, eckey))
-                                .onErrorResumeNext(t -> {
-                                    if (t instanceof CryptoUtilsException) {
-                                        return Maybe.empty();
-                                    } else {
-                                        return Maybe.error(t);
-                                    }
-                                }))
-                        .filter(this::validateSignedTradeSignature)
-                        .toList());
+                .doOnError(t -> log.error("get error: {}", t.getMessage()));
     }
 
-    Single<List<SignedTrade>> get(Set<String> ids, Long version) {
+    private Single<List<SignedTrade>> getOnce(String id, Long version) {
 
-        return Observable.fromIterable(ids).flatMap(id -> tradeServiceApi.get(id, version)
+        return conditionalGet(String.format("/trades/%s?version=%d", id, version), SIGNED_TRADES_TYPE,
+                eTag -> tradeServiceApi.get(eTag, id, version), this::toValidSignedTrades);
+    }
+
+    // get trades with versions greater than the version given for each trade id, in batched requests
+    Single<List<SignedTrade>> get(Map<String, Long> versions) {
+
+        return Observable.fromIterable(versions.entrySet())
+                .map(e -> new TradeVersion(e.getKey(), e.getValue()))
+                .buffer(MAX_SYNC_BATCH_SIZE)
+                .concatMapSingle(this::sync)
+                .flatMapIterable(l -> l)
+                .toList();
+    }
+
+    // servers without the batch endpoint are asked for each trade separately
+    private Single<List<SignedTrade>> sync(List<TradeVersion> tradeVersions) {
+
+        return Single.defer(() -> {
+            if (syncUnsupported) {
+                return getEach(tradeVersions);
+            }
+            return tradeServiceApi.sync(tradeVersions)
+                    .flatMap(this::toValidSignedTrades)
+                    .onErrorResumeNext(t -> {
+                        if (isUnsupported(t)) {
+                            log.warn("Trade sync not supported, getting trades separately");
+                            syncUnsupported = true;
+                            return getEach(tradeVersions);
+                        }
+                        return Single.error(t);
+                    });
+        })
                 .retryWhen(new RetryWithDelay(5, 2, TimeUnit.SECONDS))
-                .doOnError(t -> log.error("get error: {}", t.getMessage()))
-                .flatMapObservable(l -> Observable.fromIterable(l)
-                        .flatMapMaybe(tsr -> walletManager.getProfileECKey().map(eckey -> toSignedTrade(tsr, eckey)))
-                ).onErrorResumeNext(t -> {
-                    if (t instanceof CryptoUtilsException) {
-                        return Observable.empty();
-                    } else {
-                        return Observable.error(t);
-                    }
-                }))
-                .filter(this::validateSignedTradeSignature)
-                //.retry(throwable -> throwable instanceof CryptoUtilsException)
+                .doOnError(t -> log.error("sync error: {}", t.getMessage()));
+    }
+
+    // not retried separately, the batch is retried by sync
+    private Single<List<SignedTrade>> getEach(List<TradeVersion> tradeVersions) {
+
+        return Observable.fromIterable(tradeVersions)
+                .concatMapSingle(tv -> getOnce(tv.getId(), tv.getVersion()))
+                .flatMapIterable(l -> l)
                 .toList();
     }
 
+    Observable<List<SignedTrade>> subscribe(String profilePubKey, Long version) {
+
+        return tradeSubscription.subscribe(profilePubKey, version)
+                .concatMapSingle(this::toValidSignedTrades);
+    }
+
+    Observable<Boolean> isSubscribed() {
+        return tradeSubscription.isConnected();
+    }
+
     Single<List<SignedTrade>> getArbitrate(Long version) {
-        return tradeServiceApi.getArbitrate(version)
+
+        return conditionalGet(String.format("/trades/arbitrate?version=%d", version), SIGNED_TRADES_TYPE,
+                eTag -> tradeServiceApi.getArbitrate(eTag, version), this::toValidSignedTrades)
                 .retryWhen(new RetryWithDelay(5, 2, TimeUnit.SECONDS))
-                .doOnError(t -> log.error("get error: {}", t.getMessage()))
-                .flatMap(l -> Observable.fromIterable(l)
-                        .flatMapMaybe(tsr -> walletManager.getProfileECKey().map(eckey -> toSignedTrade(tsr, eckey)))
-                        .onErrorResumeNext(t -> {
-                            if (t instanceof CryptoUtilsException) {
-                                return Observable.empty();
-                            } else {
-                                return Observable.error(t);
-                            }
-                        })
-                        .filter(this::validateSignedTradeSignature)
-                        .toList());
-        //.retry(throwable -> throwable instanceof CryptoUtilsException);
+                .doOnError(t -> log.error("get error: {}", t.getMessage()));
+    }
+
+    // decrypt, decode and verify trades sent to this profile in parallel, drop trades that can't be decrypted,
+    // decoded or have invalid signatures, trades tagged for other recipients are skipped without decrypting them
+    private Single<List<SignedTrade>> toValidSignedTrades(List<TradeServiceResource> tradeServiceResources) {
+
+        return walletManager.getProfileECKey().flatMapObservable(eckey -> {
+            String recipient = recipientTag(eckey.getPubKey());
+            return Observable.fromIterable(tradeServiceResources)
+                    .filter(tsr -> tsr.getRecipient() == null || tsr.getRecipient().equals(recipient))
+                    .flatMap(tsr -> Maybe.<SignedTrade>fromCallable(() -> toSignedTrade(tsr, eckey))
+                            .filter(this::validateSignedTradeSignature)
+                            .onErrorResumeNext(t -> {
+                                if (t instanceof CryptoUtilsException || t instanceof CodecException) {
+                                    log.debug("Dropping trade resource: {}", t.getMessage());
+                                    return Maybe.empty();
+                                } else {
+                                    return Maybe.error(t);
+                                }
+                            })
+                            .subscribeOn(Schedulers.computation())
+                            .toObservable(), VERIFY_PARALLELISM);
+        })
+                .toSortedList((st1, st2) -> compareVersions(st1.getVersion(), st2.getVersion()));
+    }
+
+    // trades without a version sort first
+    private static int compareVersions(Long v1, Long v2) {
+        if (v1 == null || v2 == null) {
+            return v1 == null ? (v2 == null ? 0 : -1) : 1;
+        }
+        return v1.compareTo(v2);
+    }
+
+    // first bytes of the receiver pub key hash, enough to tell recipients apart without revealing the key,
+    // the tag is the same for every trade sent to a profile so the server can link them, it can't be derived
+    // per trade because receivers must match new trades before decrypting them and don't yet know their ids
+    static String recipientTag(byte[] receiverPubKey) {
+
+        return Base58.encode(Arrays.copyOf(Sha256Hash.hash(receiverPubKey), RECIPIENT_TAG_LENGTH));
     }
 
     private TradeServiceResource toTradeServiceResource(SignedTrade signedTrade, String receiverPubKeyBase58) {
 
         // encrypt signedTrade
-        ECKey receiverPubKey = ECKey.fromPublicOnly(Base58.decode(receiverPubKeyBase58));
-        String signedTradeJson = gson.toJson(signedTrade);
-        String encryptedSignedTrade = cryptoUtils.encrypt(receiverPubKey, signedTradeJson);
+        byte[] receiverPubKeyBytes = Base58.decode(receiverPubKeyBase58);
+        ECKey receiverPubKey = ECKey.fromPublicOnly(receiverPubKeyBytes);
+        String encryptedSignedTrade = cryptoUtils.encrypt(receiverPubKey, sendCodec.encode(signedTrade));
 
         TradeServiceResource tradeServiceResource;
         if (signedTrade.hasTakeOfferRequest() && !signedTrade.hasAcceptance()) {
             tradeServiceResource = TradeServiceResource.builder()
                     .id(UUID.randomUUID().toString())
                     .offerId(signedTrade.getOffer().getId())
+                    .recipient(recipientTag(receiverPubKeyBytes))
                     .trade(encryptedSignedTrade)
                     .tradeUnencrypted(isRegtest ? signedTrade : null)
                     .build();
@@ -194,6 +277,7 @@ public class TradeService extends RetrofitService {
             tradeServiceResource = TradeServiceResource.builder()
                     .id(signedTrade.getId())
                     .arbitrate(signedTrade.hasArbitrateRequest())
+                    .recipient(recipientTag(receiverPubKeyBytes))
                     .trade(encryptedSignedTrade)
                     .tradeUnencrypted(isRegtest ? signedTrade : null)
                     .build();
@@ -206,8 +290,9 @@ public class TradeService extends RetrofitService {
         // decrypt signedTrade
         try {
 
-            String signedTradeJson = cryptoUtils.decrypt(profileECKey, tradeServiceResource.getTrade());
-            SignedTrade signedTrade = gson.fromJson(signedTradeJson, SignedTrade.class);
+            // trades sent by older versions are json encoded, the codec falls back to json
+            byte[] signedTradeData = cryptoUtils.decryptBytes(profileECKey, tradeServiceResource.getTrade());
+            SignedTrade signedTrade = receiveCodec.decode(signedTradeData, SignedTrade.class);
 
             signedTrade.setVersion(tradeServiceResource.getVersion());
             return signedTrade;
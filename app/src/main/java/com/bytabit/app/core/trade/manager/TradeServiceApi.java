@@ -17,12 +17,16 @@
 package com.bytabit.app.core.trade.manager;
 
 import com.bytabit.app.core.trade.model.TradeServiceResource;
+import com.bytabit.app.core.trade.model.TradeVersion;
 
 import java.util.List;
 
 import io.reactivex.Single;
+import retrofit2.Response;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
 import retrofit2.http.Query;
@@ -33,11 +37,18 @@ public interface TradeServiceApi {
     Single<TradeServiceResource> put(@Path("id") String id, @Body TradeServiceResource trade);
 
     @GET("/offers/{offerId}/trades")
-    Single<List<TradeServiceResource>> getByOfferId(@Path("offerId") String offerId, @Query("version") Long version);
+    Single<Response<List<TradeServiceResource>>> getByOfferId(@Header("If-None-Match") String eTag,
+                                                             @Path("offerId") String offerId, @Query("version") Long version);
 
     @GET("/trades/{id}")
-    Single<List<TradeServiceResource>> get(@Path("id") String id, @Query("version") Long version);
+    Single<Response<List<TradeServiceResource>>> get(@Header("If-None-Match") String eTag,
+                                                    @Path("id") String id, @Query("version") Long version);
+
+    // trade resources with versions greater than the given version of each trade
+    @POST("/trades/sync")
+    Single<List<TradeServiceResource>> sync(@Body List<TradeVersion> tradeVersions);
 
     @GET("/trades/arbitrate")
-    Single<List<TradeServiceResource>> getArbitrate(@Query("version") Long version);
+    Single<Response<List<TradeServiceResource>>> getArbitrate(@Header("If-None-Match") String eTag,
+                                                             @Query("version") Long version);
 }
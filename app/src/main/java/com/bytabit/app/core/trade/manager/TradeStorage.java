@@ -20,14 +20,160 @@ import com.bytabit.app.core.common.AppConfig;
 import com.bytabit.app.core.common.file.EntityFileStorage;
 import com.bytabit.app.core.trade.model.Trade;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Single;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Singleton
 public class TradeStorage extends EntityFileStorage<Trade> {
 
+    // secondary indexes, trade ids by status, role and offer id
+    private final Map<Trade.Status, Set<String>> idsByStatus = new HashMap<>();
+
+    private final Map<Trade.Role, Set<String>> idsByRole = new HashMap<>();
+
+    private final Map<String, Set<String>> idsByOfferId = new HashMap<>();
+
+    // index keys each trade is currently filed under, trades are mutable so keys can't be read back from them
+    private final Map<String, IndexKeys> indexKeys = new HashMap<>();
+
+    // highest trade version stored, derived from the stored trades as they are loaded and written
+    private long maxVersion;
+
     @Inject
     public TradeStorage(AppConfig appConfig) {
-        super(appConfig, Trade.class);
+        super(appConfig, Trade.class, StoreType.LOG);
+    }
+
+    public Single<Long> getMaxVersion() {
+
+        return query(this::currentMaxVersion);
+    }
+
+    public Single<List<Trade>> findByStatusIn(Trade.Status... statuses) {
+
+        return findByStatusIn(Arrays.asList(statuses));
+    }
+
+    public Single<List<Trade>> findByStatusIn(Collection<Trade.Status> statuses) {
+
+        return query(() -> getLoaded(findIds(idsByStatus, statuses)));
+    }
+
+    public Single<List<Trade>> findByRole(Trade.Role role) {
+
+        return query(() -> getLoaded(findIds(idsByRole, Collections.singletonList(role))));
+    }
+
+    public Single<List<Trade>> findByOfferId(String offerId) {
+
+        return query(() -> getLoaded(findIds(idsByOfferId, Collections.singletonList(offerId))));
+    }
+
+    @Override
+    protected Trade copy(Trade trade) {
+        return trade.copyBuilder().build();
+    }
+
+    @Override
+    protected synchronized void entityStored(Trade trade) {
+
+        if (trade.getVersion() != null && trade.getVersion() > maxVersion) {
+            maxVersion = trade.getVersion();
+        }
+
+        unindex(trade.getId());
+
+        IndexKeys keys = new IndexKeys(trade.getStatus(), trade.getRole(),
+                trade.hasOffer() ? trade.getOffer().getId() : null);
+        addId(idsByStatus, keys.status, trade.getId());
+        addId(idsByRole, keys.role, trade.getId());
+        addId(idsByOfferId, keys.offerId, trade.getId());
+        indexKeys.put(trade.getId(), keys);
+    }
+
+    @Override
+    protected synchronized void entityRemoved(String id) {
+
+        unindex(id);
+    }
+
+    private synchronized long currentMaxVersion() {
+        return maxVersion;
+    }
+
+    private void unindex(String id) {
+
+        IndexKeys keys = indexKeys.remove(id);
+        if (keys != null) {
+            removeId(idsByStatus, keys.status, id);
+            removeId(idsByRole, keys.role, id);
+            removeId(idsByOfferId, keys.offerId, id);
+        }
+    }
+
+    private synchronized <K> List<String> findIds(Map<K, Set<String>> index, Collection<K> keys) {
+
+        List<String> ids = new ArrayList<>();
+        for (K key : keys) {
+            Set<String> keyIds = index.get(key);
+            if (keyIds != null) {
+                ids.addAll(keyIds);
+            }
+        }
+        return ids;
+    }
+
+    private static <K> void addId(Map<K, Set<String>> index, K key, String id) {
+
+        if (key != null) {
+            Set<String> ids = index.get(key);
+            if (ids == null) {
+                ids = new HashSet<>();
+                index.put(key, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    private static <K> void removeId(Map<K, Set<String>> index, K key, String id) {
+
+        if (key != null) {
+            Set<String> ids = index.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    index.remove(key);
+                }
+            }
+        }
+    }
+
+    private static class IndexKeys {
+
+        private final Trade.Status status;
+
+        private final Trade.Role role;
+
+        private final String offerId;
+
+        private IndexKeys(Trade.Status status, Trade.Role role, String offerId) {
+            this.status = status;
+            this.role = role;
+            this.offerId = offerId;
+        }
     }
 }
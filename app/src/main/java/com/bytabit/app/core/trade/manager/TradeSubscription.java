@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.trade.manager;
+
+import com.bytabit.app.core.common.net.RetrofitService;
+import com.bytabit.app.core.trade.model.TradeServiceResource;
+import com.google.gson.Gson;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Observable;
+import io.reactivex.subjects.BehaviorSubject;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * Long-poll subscription to trade resources sent to a profile. Each poll asks for trades newer
+ * than the highest version received so far and a new poll starts when the previous one returns,
+ * but no sooner than the minimum poll interval after it started. After a failed poll the
+ * subscription is disconnected until a poll succeeds again. If the server doesn't support
+ * subscriptions the subscription completes and stays disconnected.
+ */
+@Slf4j
+public class TradeSubscription {
+
+    // must be longer than the time the server holds a poll open
+    private static final long READ_TIMEOUT_SECONDS = 90;
+
+    private static final long RECONNECT_DELAY_SECONDS = 15;
+
+    // keeps a server or proxy that returns polls right away from causing a tight request loop
+    private static final long MIN_POLL_INTERVAL_SECONDS = 2;
+
+    private final TradeSubscriptionApi tradeSubscriptionApi;
+
+    private final long reconnectDelay;
+
+    private final TimeUnit reconnectDelayUnit;
+
+    private final long minPollInterval;
+
+    private final BehaviorSubject<Boolean> connected = BehaviorSubject.createDefault(false);
+
+    // shares the connection pool and dispatcher of the given client
+    public TradeSubscription(String baseUrl, Gson gson, OkHttpClient httpClient) {
+        this(baseUrl, gson, httpClient.newBuilder()
+                .readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build(), RECONNECT_DELAY_SECONDS, MIN_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    TradeSubscription(String baseUrl, Gson gson, OkHttpClient client, long reconnectDelay, long minPollInterval,
+                      TimeUnit delayUnit) {
+
+        this.reconnectDelay = reconnectDelay;
+        this.minPollInterval = delayUnit.toMillis(minPollInterval);
+        this.reconnectDelayUnit = delayUnit;
+
+        tradeSubscriptionApi = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(GsonConverterFactory.create(gson))
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.createAsync())
+                .build()
+                .create(TradeSubscriptionApi.class);
+    }
+
+    /**
+     * Subscribe to trade resources for the profile with versions greater than version. Only
+     * non-empty poll results are emitted, the subscription reconnects until disposed or completes if
+     * the server doesn't support it.
+     */
+    public Observable<List<TradeServiceResource>> subscribe(String profilePubKey, long version) {
+
+        AtomicLong lastVersion = new AtomicLong(version);
+        AtomicLong pollStarted = new AtomicLong();
+
+        return Observable.defer(() -> {
+            pollStarted.set(System.currentTimeMillis());
+            return tradeSubscriptionApi.subscribe(profilePubKey, lastVersion.get()).toObservable();
+        })
+                .doOnNext(resources -> {
+                    connected.onNext(true);
+                    for (TradeServiceResource resource : resources) {
+                        if (resource.getVersion() != null && resource.getVersion() > lastVersion.get()) {
+                            lastVersion.set(resource.getVersion());
+                        }
+                    }
+                })
+                .repeatWhen(completions -> completions.flatMap(c -> Observable.timer(
+                        Math.max(0, pollStarted.get() + minPollInterval - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS)))
+                .retryWhen(errors -> errors.takeWhile(t -> {
+                    if (RetrofitService.isUnsupported(t)) {
+                        log.warn("subscribe unsupported: {}", t.getMessage());
+                        return false;
+                    }
+                    return true;
+                }).flatMap(t -> {
+                    log.warn("subscribe error: {}", t.getMessage());
+                    connected.onNext(false);
+                    return Observable.timer(reconnectDelay, reconnectDelayUnit);
+                }))
+                .filter(resources -> !resources.isEmpty())
+                .doFinally(() -> connected.onNext(false));
+    }
+
+    public Observable<Boolean> isConnected() {
+        return connected.distinctUntilChanged();
+    }
+}
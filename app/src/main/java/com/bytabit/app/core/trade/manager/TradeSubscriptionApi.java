@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.trade.manager;
+
+import com.bytabit.app.core.trade.model.TradeServiceResource;
+
+import java.util.List;
+
+import io.reactivex.Single;
+import retrofit2.http.GET;
+import retrofit2.http.Query;
+
+public interface TradeSubscriptionApi {
+
+    // held open by the server until there are trades newer than version or the poll times out
+    @GET("/trades/subscribe")
+    Single<List<TradeServiceResource>> subscribe(@Query("profilePubKey") String profilePubKey, @Query("version") Long version);
+}
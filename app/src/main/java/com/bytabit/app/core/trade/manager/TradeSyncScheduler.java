@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bytabit.app.core.trade.manager;
+
+import com.bytabit.app.core.trade.model.Trade;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Decides which stored trades are due to be polled. Each trade gets its next poll time from its status and role,
+ * and the interval backs off while polls return no change. A trade that gets a new version or status, or whose
+ * backoff is reset because the subscription reconnected or pushed a change, is due again right away. Trades in
+ * terminal statuses are never polled.
+ */
+@Singleton
+class TradeSyncScheduler {
+
+    enum Wait {
+
+        // the other side is expected to act soon
+        COUNTERPARTY(5, 60),
+        // only transaction confirmations can change the trade
+        CONFIRMATION(30, 300),
+        // the next step is ours or the arbitrator's, only a cancel or arbitrate request can arrive
+        OTHER(60, 120);
+
+        private final long minSeconds;
+        private final long maxSeconds;
+
+        Wait(long minSeconds, long maxSeconds) {
+            this.minSeconds = minSeconds;
+            this.maxSeconds = maxSeconds;
+        }
+
+        long intervalSeconds(int unchangedPolls) {
+            return Math.min(maxSeconds, minSeconds << Math.min(unchangedPolls, 16));
+        }
+    }
+
+    private final Scheduler timeScheduler;
+
+    private final Map<String, SyncState> syncStates = new HashMap<>();
+
+    @Inject
+    TradeSyncScheduler() {
+        this(Schedulers.io());
+    }
+
+    TradeSyncScheduler(Scheduler timeScheduler) {
+        this.timeScheduler = timeScheduler;
+    }
+
+    synchronized List<Trade> getDue(List<Trade> trades) {
+
+        long now = timeScheduler.now(TimeUnit.SECONDS);
+        List<Trade> dueTrades = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+
+        for (Trade trade : trades) {
+            Wait wait = getWait(trade.getStatus(), trade.getRole());
+            if (wait == null) {
+                continue;
+            }
+            ids.add(trade.getId());
+
+            SyncState state = syncStates.get(trade.getId());
+            if (state == null || !state.isSame(trade)) {
+                state = new SyncState(trade.getVersion(), trade.getStatus(), now);
+                syncStates.put(trade.getId(), state);
+            }
+            if (state.nextPollTime <= now) {
+                dueTrades.add(trade);
+                state.nextPollTime = now + wait.intervalSeconds(state.unchangedPolls++);
+            }
+        }
+
+        // forget trades that are no longer stored or active
+        Iterator<String> syncedIds = syncStates.keySet().iterator();
+        while (syncedIds.hasNext()) {
+            if (!ids.contains(syncedIds.next())) {
+                syncedIds.remove();
+            }
+        }
+
+        return dueTrades;
+    }
+
+    // make all trades due on the next check
+    synchronized void resetBackoff() {
+        syncStates.clear();
+    }
+
+    synchronized void resetBackoff(String tradeId) {
+        syncStates.remove(tradeId);
+    }
+
+    static Wait getWait(Trade.Status status, Trade.Role role) {
+
+        switch (status) {
+            case CREATED:
+                // waiting for the maker to accept
+                return Wait.COUNTERPARTY;
+            case ACCEPTED:
+                // waiting for the seller to fund the escrow
+                return Trade.Role.SELLER.equals(role) ? Wait.OTHER : Wait.COUNTERPARTY;
+            case FUNDED:
+                // waiting for the buyer to send payment
+                return Trade.Role.BUYER.equals(role) ? Wait.OTHER : Wait.COUNTERPARTY;
+            case PAID:
+                // waiting for the seller to confirm payment received
+                return Trade.Role.SELLER.equals(role) ? Wait.OTHER : Wait.COUNTERPARTY;
+            case FUNDING:
+            case COMPLETING:
+            case CANCELING:
+                return Wait.CONFIRMATION;
+            case ARBITRATING:
+                return Wait.OTHER;
+            default:
+                // COMPLETED and CANCELED trades can no longer change
+                return null;
+        }
+    }
+
+    private static class SyncState {
+
+        private final Long version;
+        private final Trade.Status status;
+        private long nextPollTime;
+        private int unchangedPolls;
+
+        private SyncState(Long version, Trade.Status status, long nextPollTime) {
+            this.version = version;
+            this.status = status;
+            this.nextPollTime = nextPollTime;
+        }
+
+        private boolean isSame(Trade trade) {
+            return status == trade.getStatus()
+                    && (version == null ? trade.getVersion() == null : version.equals(trade.getVersion()));
+        }
+    }
+}
@@ -16,10 +16,13 @@
 
 package com.bytabit.app.core.trade.model;
 
+import com.bytabit.app.core.common.CachedHash;
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 
 import org.bitcoinj.core.Sha256Hash;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -47,7 +50,31 @@ public class CancelCompleted {
     @NonNull
     private Reason reason;
 
+    // cleared when a hashed property is set
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient CachedHash cachedHash = new CachedHash();
+
+    public void setPayoutTxHash(String payoutTxHash) {
+        this.payoutTxHash = payoutTxHash;
+        cachedHash.clear();
+    }
+
+    public void setReason(@NonNull Reason reason) {
+        this.reason = reason;
+        cachedHash.clear();
+    }
+
     public Sha256Hash sha256Hash() {
-        return HashUtils.sha256Hash(payoutTxHash, reason);
+        Sha256Hash hash = cachedHash.get();
+        if (hash == null) {
+            try (Sha256Hasher hasher = HashUtils.hasher()) {
+                hash = cachedHash.set(hasher
+                        .put(payoutTxHash)
+                        .put(reason)
+                        .hash());
+            }
+        }
+        return hash;
     }
 }
@@ -16,13 +16,16 @@
 
 package com.bytabit.app.core.trade.model;
 
+import com.bytabit.app.core.common.CachedHash;
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 
 import org.bitcoinj.core.Sha256Hash;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -56,8 +59,49 @@ public class PaymentRequest {
     @NonNull
     private BigDecimal txFeePerKb;
 
+    // cleared when a hashed property is set
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient CachedHash cachedHash = new CachedHash();
+
+    public void setFundingTxHash(@NonNull String fundingTxHash) {
+        this.fundingTxHash = fundingTxHash;
+        cachedHash.clear();
+    }
+
+    public void setPaymentDetails(@NonNull String paymentDetails) {
+        this.paymentDetails = paymentDetails;
+        cachedHash.clear();
+    }
+
+    public void setRefundAddress(@NonNull String refundAddress) {
+        this.refundAddress = refundAddress;
+        cachedHash.clear();
+    }
+
+    public void setRefundTxSignature(@NonNull String refundTxSignature) {
+        this.refundTxSignature = refundTxSignature;
+        cachedHash.clear();
+    }
+
+    public void setTxFeePerKb(@NonNull BigDecimal txFeePerKb) {
+        this.txFeePerKb = txFeePerKb;
+        cachedHash.clear();
+    }
+
     public Sha256Hash sha256Hash() {
-        return HashUtils.sha256Hash(fundingTxHash, paymentDetails, refundAddress, refundTxSignature,
-                txFeePerKb.setScale(8, RoundingMode.UP));
+        Sha256Hash hash = cachedHash.get();
+        if (hash == null) {
+            try (Sha256Hasher hasher = HashUtils.hasher()) {
+                hash = cachedHash.set(hasher
+                        .put(fundingTxHash)
+                        .put(paymentDetails)
+                        .put(refundAddress)
+                        .put(refundTxSignature)
+                        .put(txFeePerKb.setScale(8, RoundingMode.UP), cachedHash)
+                        .hash());
+            }
+        }
+        return hash;
     }
 }
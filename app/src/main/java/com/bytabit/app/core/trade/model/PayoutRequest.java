@@ -16,10 +16,13 @@
 
 package com.bytabit.app.core.trade.model;
 
+import com.bytabit.app.core.common.CachedHash;
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 
 import org.bitcoinj.core.Sha256Hash;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -47,7 +50,37 @@ public class PayoutRequest {
     @NonNull
     private String payoutTxSignature;
 
+    // cleared when a hashed property is set
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient CachedHash cachedHash = new CachedHash();
+
+    public void setPaymentReference(@NonNull String paymentReference) {
+        this.paymentReference = paymentReference;
+        cachedHash.clear();
+    }
+
+    public void setPayoutAddress(@NonNull String payoutAddress) {
+        this.payoutAddress = payoutAddress;
+        cachedHash.clear();
+    }
+
+    public void setPayoutTxSignature(@NonNull String payoutTxSignature) {
+        this.payoutTxSignature = payoutTxSignature;
+        cachedHash.clear();
+    }
+
     public Sha256Hash sha256Hash() {
-        return HashUtils.sha256Hash(paymentReference, payoutAddress, payoutTxSignature);
+        Sha256Hash hash = cachedHash.get();
+        if (hash == null) {
+            try (Sha256Hasher hasher = HashUtils.hasher()) {
+                hash = cachedHash.set(hasher
+                        .put(paymentReference)
+                        .put(payoutAddress)
+                        .put(payoutTxSignature)
+                        .hash());
+            }
+        }
+        return hash;
     }
 }
@@ -17,6 +17,7 @@
 package com.bytabit.app.core.trade.model;
 
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 import com.bytabit.app.core.common.file.Entity;
 import com.bytabit.app.core.offer.model.Offer;
 import com.bytabit.app.core.payment.model.CurrencyCode;
@@ -388,12 +389,17 @@ public class Trade implements Entity {
 
     public Sha256Hash sha256Hash() {
 
-        return HashUtils.sha256Hash(offer.sha256Hash(), tradeRequest.sha256Hash(offer),
-                hasAcceptance() ? tradeAcceptance.sha256Hash() : null,
-                hasPaymentRequest() ? paymentRequest.sha256Hash() : null,
-                hasPayoutRequest() ? payoutRequest.sha256Hash() : null,
-                hasArbitrateRequest() ? arbitrateRequest.sha256Hash() : null,
-                hasPayoutCompleted() ? payoutCompleted.sha256Hash() : null,
-                hasCancelCompleted() ? cancelCompleted.sha256Hash() : null);
+        try (Sha256Hasher hasher = HashUtils.hasher()) {
+            return hasher
+                    .put(offer.sha256Hash())
+                    .put(tradeRequest.sha256Hash(offer))
+                    .put(hasAcceptance() ? tradeAcceptance.sha256Hash() : null)
+                    .put(hasPaymentRequest() ? paymentRequest.sha256Hash() : null)
+                    .put(hasPayoutRequest() ? payoutRequest.sha256Hash() : null)
+                    .put(hasArbitrateRequest() ? arbitrateRequest.sha256Hash() : null)
+                    .put(hasPayoutCompleted() ? payoutCompleted.sha256Hash() : null)
+                    .put(hasCancelCompleted() ? cancelCompleted.sha256Hash() : null)
+                    .hash();
+        }
     }
 }
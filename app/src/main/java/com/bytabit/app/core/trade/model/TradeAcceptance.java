@@ -16,10 +16,13 @@
 
 package com.bytabit.app.core.trade.model;
 
+import com.bytabit.app.core.common.CachedHash;
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 
 import org.bitcoinj.core.Sha256Hash;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -47,7 +50,37 @@ public class TradeAcceptance {
     @NonNull
     private String escrowAddress;
 
+    // cleared when a hashed property is set
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient CachedHash cachedHash = new CachedHash();
+
+    public void setMakerEscrowPubKey(@NonNull String makerEscrowPubKey) {
+        this.makerEscrowPubKey = makerEscrowPubKey;
+        cachedHash.clear();
+    }
+
+    public void setArbitratorProfilePubKey(@NonNull String arbitratorProfilePubKey) {
+        this.arbitratorProfilePubKey = arbitratorProfilePubKey;
+        cachedHash.clear();
+    }
+
+    public void setEscrowAddress(@NonNull String escrowAddress) {
+        this.escrowAddress = escrowAddress;
+        cachedHash.clear();
+    }
+
     public Sha256Hash sha256Hash() {
-        return HashUtils.sha256Hash(makerEscrowPubKey, arbitratorProfilePubKey, escrowAddress);
+        Sha256Hash hash = cachedHash.get();
+        if (hash == null) {
+            try (Sha256Hasher hasher = HashUtils.hasher()) {
+                hash = cachedHash.set(hasher
+                        .put(makerEscrowPubKey)
+                        .put(arbitratorProfilePubKey)
+                        .put(escrowAddress)
+                        .hash());
+            }
+        }
+        return hash;
     }
 }
@@ -16,7 +16,9 @@
 
 package com.bytabit.app.core.trade.model;
 
+import com.bytabit.app.core.common.CachedHash;
 import com.bytabit.app.core.common.HashUtils;
+import com.bytabit.app.core.common.Sha256Hasher;
 import com.bytabit.app.core.offer.model.Offer;
 
 import org.bitcoinj.core.Sha256Hash;
@@ -24,6 +26,7 @@ import org.bitcoinj.core.Sha256Hash;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -52,9 +55,40 @@ public class TradeRequest {
     @NonNull
     private BigDecimal paymentAmount;
 
+    // cleared when a hashed property is set
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final transient CachedHash cachedHash = new CachedHash();
+
+    public void setTakerProfilePubKey(@NonNull String takerProfilePubKey) {
+        this.takerProfilePubKey = takerProfilePubKey;
+        cachedHash.clear();
+    }
+
+    public void setTakerEscrowPubKey(@NonNull String takerEscrowPubKey) {
+        this.takerEscrowPubKey = takerEscrowPubKey;
+        cachedHash.clear();
+    }
+
+    public void setBtcAmount(@NonNull BigDecimal btcAmount) {
+        this.btcAmount = btcAmount;
+        cachedHash.clear();
+    }
+
     public Sha256Hash sha256Hash(Offer offer) {
-        return HashUtils.sha256Hash(takerProfilePubKey, takerEscrowPubKey,
-                btcAmount.setScale(offer.getCurrencyCode().getScale(), RoundingMode.HALF_UP));
+        int scale = offer.getCurrencyCode().getScale();
+
+        Sha256Hash hash = cachedHash.get(scale);
+        if (hash == null) {
+            try (Sha256Hasher hasher = HashUtils.hasher()) {
+                hash = cachedHash.set(scale, hasher
+                        .put(takerProfilePubKey)
+                        .put(takerEscrowPubKey)
+                        .put(btcAmount.setScale(scale, RoundingMode.HALF_UP), cachedHash)
+                        .hash());
+            }
+        }
+        return hash;
     }
 
     @Override
@@ -39,6 +39,9 @@ public class TradeServiceResource {
 
     private Boolean arbitrate;
 
+    // short hash of the receiver pub key, lets receivers skip resources sent to others without decrypting
+    private String recipient;
+
     private String trade;
 
     private SignedTrade tradeUnencrypted;
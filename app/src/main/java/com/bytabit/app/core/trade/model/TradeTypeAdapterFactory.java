@@ -0,0 +1,468 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.trade.model;
+
+import com.bytabit.app.core.common.json.ObjectTypeAdapter;
+import com.bytabit.app.core.offer.model.Offer;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Transient trade properties (transactions with amounts, resource id) are not written.
+ */
+public class TradeTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == Trade.class) {
+            return (TypeAdapter<T>) new TradeTypeAdapter<>(gson, Trade::new);
+        } else if (rawType == SignedTrade.class) {
+            return (TypeAdapter<T>) new SignedTradeTypeAdapter(gson);
+        } else if (rawType == TradeRequest.class) {
+            return (TypeAdapter<T>) new TradeRequestTypeAdapter();
+        } else if (rawType == TradeAcceptance.class) {
+            return (TypeAdapter<T>) new TradeAcceptanceTypeAdapter();
+        } else if (rawType == PaymentRequest.class) {
+            return (TypeAdapter<T>) new PaymentRequestTypeAdapter();
+        } else if (rawType == PayoutRequest.class) {
+            return (TypeAdapter<T>) new PayoutRequestTypeAdapter();
+        } else if (rawType == ArbitrateRequest.class) {
+            return (TypeAdapter<T>) new ArbitrateRequestTypeAdapter();
+        } else if (rawType == PayoutCompleted.class) {
+            return (TypeAdapter<T>) new PayoutCompletedTypeAdapter();
+        } else if (rawType == CancelCompleted.class) {
+            return (TypeAdapter<T>) new CancelCompletedTypeAdapter();
+        } else if (rawType == TradeServiceResource.class) {
+            return (TypeAdapter<T>) new TradeServiceResourceTypeAdapter(gson);
+        } else if (rawType == TradeVersion.class) {
+            return (TypeAdapter<T>) new TradeVersionTypeAdapter();
+        }
+        return null;
+    }
+
+    private interface TradeSupplier<T extends Trade> {
+        T get();
+    }
+
+    private static class TradeTypeAdapter<T extends Trade> extends ObjectTypeAdapter<T> {
+
+        private final Gson gson;
+        private final TradeSupplier<T> supplier;
+
+        private TradeTypeAdapter(Gson gson, TradeSupplier<T> supplier) {
+            this.gson = gson;
+            this.supplier = supplier;
+        }
+
+        @Override
+        protected T newInstance() {
+            return supplier.get();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, T trade) throws IOException {
+            write(out, "id", trade.getId());
+            write(out, "version", trade.getVersion());
+            write(out, "status", trade.getStatus());
+            write(out, "role", trade.getRole());
+            write(gson, out, "createdTimestamp", trade.getCreatedTimestamp());
+            write(gson, out, "offer", trade.getOffer());
+            write(gson, out, "tradeRequest", trade.getTradeRequest());
+            write(gson, out, "tradeAcceptance", trade.getTradeAcceptance());
+            write(gson, out, "paymentRequest", trade.getPaymentRequest());
+            write(gson, out, "payoutRequest", trade.getPayoutRequest());
+            write(gson, out, "arbitrateRequest", trade.getArbitrateRequest());
+            write(gson, out, "cancelCompleted", trade.getCancelCompleted());
+            write(gson, out, "payoutCompleted", trade.getPayoutCompleted());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, T trade) throws IOException {
+            switch (name) {
+                case "id":
+                    trade.setId(in.nextString());
+                    return true;
+                case "version":
+                    trade.setVersion(in.nextLong());
+                    return true;
+                case "status":
+                    readEnum(in, Trade.Status.class, trade::setStatus);
+                    return true;
+                case "role":
+                    readEnum(in, Trade.Role.class, trade::setRole);
+                    return true;
+                case "createdTimestamp":
+                    trade.setCreatedTimestamp(gson.getAdapter(Date.class).read(in));
+                    return true;
+                case "offer":
+                    trade.setOffer(gson.getAdapter(Offer.class).read(in));
+                    return true;
+                case "tradeRequest":
+                    trade.setTradeRequest(gson.getAdapter(TradeRequest.class).read(in));
+                    return true;
+                case "tradeAcceptance":
+                    trade.setTradeAcceptance(gson.getAdapter(TradeAcceptance.class).read(in));
+                    return true;
+                case "paymentRequest":
+                    trade.setPaymentRequest(gson.getAdapter(PaymentRequest.class).read(in));
+                    return true;
+                case "payoutRequest":
+                    trade.setPayoutRequest(gson.getAdapter(PayoutRequest.class).read(in));
+                    return true;
+                case "arbitrateRequest":
+                    trade.setArbitrateRequest(gson.getAdapter(ArbitrateRequest.class).read(in));
+                    return true;
+                case "cancelCompleted":
+                    trade.setCancelCompleted(gson.getAdapter(CancelCompleted.class).read(in));
+                    return true;
+                case "payoutCompleted":
+                    trade.setPayoutCompleted(gson.getAdapter(PayoutCompleted.class).read(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class SignedTradeTypeAdapter extends TradeTypeAdapter<SignedTrade> {
+
+        private SignedTradeTypeAdapter(Gson gson) {
+            super(gson, SignedTrade::new);
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, SignedTrade signedTrade) throws IOException {
+            write(out, "signature", signedTrade.getSignature());
+            super.writeProperties(out, signedTrade);
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, SignedTrade signedTrade) throws IOException {
+            if ("signature".equals(name)) {
+                signedTrade.setSignature(in.nextString());
+                return true;
+            }
+            return super.readProperty(in, name, signedTrade);
+        }
+    }
+
+    private static class TradeRequestTypeAdapter extends ObjectTypeAdapter<TradeRequest> {
+
+        @Override
+        protected TradeRequest newInstance() {
+            return new TradeRequest();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, TradeRequest tradeRequest) throws IOException {
+            write(out, "takerProfilePubKey", tradeRequest.getTakerProfilePubKey());
+            write(out, "takerEscrowPubKey", tradeRequest.getTakerEscrowPubKey());
+            write(out, "btcAmount", tradeRequest.getBtcAmount());
+            write(out, "paymentAmount", tradeRequest.getPaymentAmount());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, TradeRequest tradeRequest) throws IOException {
+            switch (name) {
+                case "takerProfilePubKey":
+                    tradeRequest.setTakerProfilePubKey(in.nextString());
+                    return true;
+                case "takerEscrowPubKey":
+                    tradeRequest.setTakerEscrowPubKey(in.nextString());
+                    return true;
+                case "btcAmount":
+                    tradeRequest.setBtcAmount(readDecimal(in));
+                    return true;
+                case "paymentAmount":
+                    tradeRequest.setPaymentAmount(readDecimal(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class TradeAcceptanceTypeAdapter extends ObjectTypeAdapter<TradeAcceptance> {
+
+        @Override
+        protected TradeAcceptance newInstance() {
+            return new TradeAcceptance();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, TradeAcceptance tradeAcceptance) throws IOException {
+            write(out, "makerEscrowPubKey", tradeAcceptance.getMakerEscrowPubKey());
+            write(out, "arbitratorProfilePubKey", tradeAcceptance.getArbitratorProfilePubKey());
+            write(out, "escrowAddress", tradeAcceptance.getEscrowAddress());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, TradeAcceptance tradeAcceptance) throws IOException {
+            switch (name) {
+                case "makerEscrowPubKey":
+                    tradeAcceptance.setMakerEscrowPubKey(in.nextString());
+                    return true;
+                case "arbitratorProfilePubKey":
+                    tradeAcceptance.setArbitratorProfilePubKey(in.nextString());
+                    return true;
+                case "escrowAddress":
+                    tradeAcceptance.setEscrowAddress(in.nextString());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class PaymentRequestTypeAdapter extends ObjectTypeAdapter<PaymentRequest> {
+
+        @Override
+        protected PaymentRequest newInstance() {
+            return new PaymentRequest();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, PaymentRequest paymentRequest) throws IOException {
+            write(out, "fundingTxHash", paymentRequest.getFundingTxHash());
+            write(out, "paymentDetails", paymentRequest.getPaymentDetails());
+            write(out, "refundAddress", paymentRequest.getRefundAddress());
+            write(out, "refundTxSignature", paymentRequest.getRefundTxSignature());
+            write(out, "txFeePerKb", paymentRequest.getTxFeePerKb());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, PaymentRequest paymentRequest) throws IOException {
+            switch (name) {
+                case "fundingTxHash":
+                    paymentRequest.setFundingTxHash(in.nextString());
+                    return true;
+                case "paymentDetails":
+                    paymentRequest.setPaymentDetails(in.nextString());
+                    return true;
+                case "refundAddress":
+                    paymentRequest.setRefundAddress(in.nextString());
+                    return true;
+                case "refundTxSignature":
+                    paymentRequest.setRefundTxSignature(in.nextString());
+                    return true;
+                case "txFeePerKb":
+                    paymentRequest.setTxFeePerKb(readDecimal(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class PayoutRequestTypeAdapter extends ObjectTypeAdapter<PayoutRequest> {
+
+        @Override
+        protected PayoutRequest newInstance() {
+            return new PayoutRequest();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, PayoutRequest payoutRequest) throws IOException {
+            write(out, "paymentReference", payoutRequest.getPaymentReference());
+            write(out, "payoutAddress", payoutRequest.getPayoutAddress());
+            write(out, "payoutTxSignature", payoutRequest.getPayoutTxSignature());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, PayoutRequest payoutRequest) throws IOException {
+            switch (name) {
+                case "paymentReference":
+                    payoutRequest.setPaymentReference(in.nextString());
+                    return true;
+                case "payoutAddress":
+                    payoutRequest.setPayoutAddress(in.nextString());
+                    return true;
+                case "payoutTxSignature":
+                    payoutRequest.setPayoutTxSignature(in.nextString());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class ArbitrateRequestTypeAdapter extends ObjectTypeAdapter<ArbitrateRequest> {
+
+        @Override
+        protected ArbitrateRequest newInstance() {
+            return new ArbitrateRequest();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, ArbitrateRequest arbitrateRequest) throws IOException {
+            write(out, "reason", arbitrateRequest.getReason());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, ArbitrateRequest arbitrateRequest) throws IOException {
+            if ("reason".equals(name)) {
+                readEnum(in, ArbitrateRequest.Reason.class, arbitrateRequest::setReason);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class PayoutCompletedTypeAdapter extends ObjectTypeAdapter<PayoutCompleted> {
+
+        @Override
+        protected PayoutCompleted newInstance() {
+            return new PayoutCompleted();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, PayoutCompleted payoutCompleted) throws IOException {
+            write(out, "payoutTxHash", payoutCompleted.getPayoutTxHash());
+            write(out, "reason", payoutCompleted.getReason());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, PayoutCompleted payoutCompleted) throws IOException {
+            switch (name) {
+                case "payoutTxHash":
+                    payoutCompleted.setPayoutTxHash(in.nextString());
+                    return true;
+                case "reason":
+                    readEnum(in, PayoutCompleted.Reason.class, payoutCompleted::setReason);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class CancelCompletedTypeAdapter extends ObjectTypeAdapter<CancelCompleted> {
+
+        @Override
+        protected CancelCompleted newInstance() {
+            return new CancelCompleted();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, CancelCompleted cancelCompleted) throws IOException {
+            write(out, "payoutTxHash", cancelCompleted.getPayoutTxHash());
+            write(out, "reason", cancelCompleted.getReason());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, CancelCompleted cancelCompleted) throws IOException {
+            switch (name) {
+                case "payoutTxHash":
+                    cancelCompleted.setPayoutTxHash(in.nextString());
+                    return true;
+                case "reason":
+                    readEnum(in, CancelCompleted.Reason.class, cancelCompleted::setReason);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class TradeServiceResourceTypeAdapter extends ObjectTypeAdapter<TradeServiceResource> {
+
+        private final Gson gson;
+
+        private TradeServiceResourceTypeAdapter(Gson gson) {
+            this.gson = gson;
+        }
+
+        @Override
+        protected TradeServiceResource newInstance() {
+            return new TradeServiceResource();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, TradeServiceResource resource) throws IOException {
+            write(out, "version", resource.getVersion());
+            write(out, "offerId", resource.getOfferId());
+            write(out, "arbitrate", resource.getArbitrate());
+            write(out, "recipient", resource.getRecipient());
+            write(out, "trade", resource.getTrade());
+            write(gson, out, "tradeUnencrypted", resource.getTradeUnencrypted());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, TradeServiceResource resource) throws IOException {
+            switch (name) {
+                case "version":
+                    resource.setVersion(in.nextLong());
+                    return true;
+                case "offerId":
+                    resource.setOfferId(in.nextString());
+                    return true;
+                case "arbitrate":
+                    resource.setArbitrate(in.nextBoolean());
+                    return true;
+                case "recipient":
+                    resource.setRecipient(in.nextString());
+                    return true;
+                case "trade":
+                    resource.setTrade(in.nextString());
+                    return true;
+                case "tradeUnencrypted":
+                    resource.setTradeUnencrypted(gson.getAdapter(SignedTrade.class).read(in));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static class TradeVersionTypeAdapter extends ObjectTypeAdapter<TradeVersion> {
+
+        @Override
+        protected TradeVersion newInstance() {
+            return new TradeVersion();
+        }
+
+        @Override
+        protected void writeProperties(JsonWriter out, TradeVersion tradeVersion) throws IOException {
+            write(out, "id", tradeVersion.getId());
+            write(out, "version", tradeVersion.getVersion());
+        }
+
+        @Override
+        protected boolean readProperty(JsonReader in, String name, TradeVersion tradeVersion) throws IOException {
+            switch (name) {
+                case "id":
+                    tradeVersion.setId(in.nextString());
+                    return true;
+                case "version":
+                    tradeVersion.setVersion(in.nextLong());
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.bytabit.app.core.wallet.manager;
 
 import com.bytabit.app.core.common.AppConfig;
+import com.bytabit.app.core.common.LruCache;
 import com.bytabit.app.core.wallet.model.TradeWalletInfo;
 import com.bytabit.app.core.wallet.model.TransactionWithAmt;
 import com.bytabit.app.core.wallet.model.WalletKitConfig;
@@ -82,6 +83,12 @@ public class WalletManager {
 
     private final long ONE_WEEK_MILLISECONDS = 60000 * 60 * 24 * 7;
 
+    // fixed bound, well above a busy offer book plus the signed trades of active trades (one per status
+    // reached), so a sync pass doesn't evict entries the next pass needs, at about 300 bytes an entry
+    private static final int MAX_VERIFIED_SIGNATURES = 16 * 1024;
+
+    private final LruCache<String, Boolean> verifiedSignatures = new LruCache<>(MAX_VERIFIED_SIGNATURES);
+
     private final NetworkParameters netParams;
     private final Context btcContext;
 
@@ -773,10 +780,21 @@ public class WalletManager {
     }
 
     public boolean validateBase58PubKeySignature(String pubKey, String signature, Sha256Hash hash) {
+
+        // unchanged offers and trades are received again on each poll, only verify them once
+        String verifiedKey = String.format("%s:%s:%s", pubKey, hash, signature);
+        if (verifiedSignatures.get(verifiedKey) != null) {
+            return true;
+        }
+
         ECKey pubECKey = ECKey.fromPublicOnly(Base58.decode(pubKey));
         ECKey.ECDSASignature ecdsaSignature = ECKey.ECDSASignature.decodeFromDER(Base58.decode(signature));
 
-        return pubECKey.verify(hash, ecdsaSignature);
+        boolean verified = pubECKey.verify(hash, ecdsaSignature);
+        if (verified) {
+            verifiedSignatures.put(verifiedKey, TRUE);
+        }
+        return verified;
     }
 
     private Maybe<Sha256Hash> payoutEscrow(Coin payoutAmount, Coin txFeePerKb,
@@ -44,6 +44,8 @@ public class BytabitApplication extends Application {
                 .baseUrl(BuildConfig.BASE_URL)
                 .peerAddress(BuildConfig.PEER_ADDRESS)
                 .peerPort(BuildConfig.PEER_PORT)
+                .gzipRequests(BuildConfig.GZIP_REQUESTS)
+                .binaryTrades(BuildConfig.BINARY_TRADES)
                 .build();
 
         applicationComponent = DaggerApplicationComponent.builder()
@@ -135,4 +135,26 @@ public class TestCryptoUtils {
         }
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void whenCachedCipherAndKeys_encryptMessages_returnSameMessages() {
+
+        ECKey aECKey = new ECKey();
+        ECKey bECKey = new ECKey();
+        ECKey bPubECKey = ECKey.fromPublicOnly(bECKey.getPubKeyPoint());
+
+        for (int i = 0; i < 3; i++) {
+            String clearText = "message " + i;
+            String cipherText = cryptoUtils.encrypt(bPubECKey, clearText);
+
+            // failed decrypt with the wrong key doesn't break the reused cipher
+            try {
+                cryptoUtils.decrypt(aECKey, cipherText);
+                assert (false);
+            } catch (CryptoUtilsException cue) {
+                log.debug("expected: {}", cue.getMessage());
+            }
+            assert (cryptoUtils.decrypt(bECKey, cipherText).equals(clearText));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bytabit.app.core.common;
+
+import com.bytabit.app.core.badge.model.Badge;
+import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+
+import org.bitcoinj.core.Sha256Hash;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class TestHashUtils {
+
+    @Test
+    public void whenHashingProperties_returnSameHashAsConcatenatedPropertyHashes() throws Exception {
+
+        Date date = new Date(1556000000123L);
+        Sha256Hash nested = Sha256Hash.of("nested".getBytes());
+
+        Sha256Hash hash;
+        try (Sha256Hasher hasher = HashUtils.hasher()) {
+            hash = hasher
+                    .put("testProfilePubKey")
+                    .put(Offer.OfferType.BUY)
+                    .put(date)
+                    .put((String) null)
+                    .put(new BigDecimal("100.50"))
+                    .put(nested)
+                    .hash();
+        }
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(Sha256Hash.of("testProfilePubKey".getBytes()).getBytes());
+        expected.write(Sha256Hash.of("BUY".getBytes()).getBytes());
+        expected.write(Sha256Hash.of(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(date).getBytes()).getBytes());
+        expected.write(Sha256Hash.of("100.50".getBytes()).getBytes());
+        expected.write(nested.getBytes());
+
+        assert (hash.equals(Sha256Hash.of(expected.toByteArray())));
+        assert (hash.equals(HashUtils.sha256Hash("testProfilePubKey", Offer.OfferType.BUY, date, null,
+                new BigDecimal("100.50"), nested)));
+    }
+
+    @Test
+    public void whenHashingNestedHashes_returnSameHash() {
+
+        Offer offer = Offer.builder()
+                .id("testId")
+                .offerType(Offer.OfferType.SELL)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .minAmount(BigDecimal.valueOf(100.00))
+                .maxAmount(BigDecimal.valueOf(1000.00))
+                .price(BigDecimal.valueOf(100000))
+                .build();
+
+        // hashes computed while another hash on the same thread is in progress
+        Sha256Hash hash;
+        try (Sha256Hasher hasher = HashUtils.hasher()) {
+            hash = hasher
+                    .put(offer.sha256Hash())
+                    .put(offer.sha256Hash())
+                    .hash();
+        }
+
+        assert (hash.equals(HashUtils.sha256Hash(offer.sha256Hash(), offer.sha256Hash())));
+    }
+
+    @Test
+    public void whenHashedPropertySet_returnNewHash() {
+
+        Offer offer = Offer.builder()
+                .id("testId")
+                .offerType(Offer.OfferType.SELL)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .minAmount(BigDecimal.valueOf(100.00))
+                .maxAmount(BigDecimal.valueOf(1000.00))
+                .price(BigDecimal.valueOf(100000))
+                .build();
+
+        Sha256Hash hash = offer.sha256Hash();
+        assert (offer.sha256Hash() == hash);
+
+        offer.setPrice(BigDecimal.valueOf(110000));
+        Sha256Hash newHash = offer.sha256Hash();
+
+        assert (!newHash.equals(hash));
+        assert (newHash.equals(HashUtils.sha256Hash(offer.getOfferType(), offer.getMakerProfilePubKey(),
+                offer.getCurrencyCode(), offer.getPaymentMethod(), new BigDecimal("100"),
+                new BigDecimal("1000"), new BigDecimal("110000"))));
+    }
+
+    @Test
+    public void whenHasherClosed_throwWhenReused() {
+
+        Sha256Hasher closed;
+        try (Sha256Hasher hasher = HashUtils.hasher()) {
+            closed = hasher;
+        }
+
+        // the pooled instance handed out again is open
+        try (Sha256Hasher hasher = HashUtils.hasher()) {
+            assert (hasher.put("testValue").hash().equals(HashUtils.sha256Hash("testValue")));
+        }
+
+        try {
+            closed.put("testValue");
+            assert (false);
+        } catch (HashException he) {
+            log.debug("reuse error: {}", he.getMessage());
+        }
+    }
+
+    @Test
+    public void whenEncodingCached_returnSameHash() {
+
+        Date validFrom = new Date(1556000000123L);
+        Date validTo = new Date(1587536000123L);
+
+        Badge badge = Badge.builder()
+                .id("testId")
+                .profilePubKey("testProfilePubKey")
+                .badgeType(Badge.BadgeType.OFFER_MAKER)
+                .validFrom(validFrom)
+                .validTo(validTo)
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .build();
+
+        Sha256Hash expected = HashUtils.sha256Hash("testProfilePubKey", Badge.BadgeType.OFFER_MAKER, validFrom,
+                validTo, CurrencyCode.SEK, PaymentMethod.SWISH, null);
+
+        assert (badge.sha256Hash().equals(expected));
+        assert (badge.sha256Hash().equals(expected));
+
+        Offer offer = Offer.builder()
+                .id("testId")
+                .offerType(Offer.OfferType.SELL)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .minAmount(BigDecimal.valueOf(100.00))
+                .maxAmount(BigDecimal.valueOf(1000.00))
+                .price(BigDecimal.valueOf(100000))
+                .build();
+
+        Sha256Hash hash = offer.sha256Hash();
+
+        offer.setPrice(BigDecimal.valueOf(110000));
+        assert (!offer.sha256Hash().equals(hash));
+
+        offer.setPrice(BigDecimal.valueOf(100000));
+        assert (offer.sha256Hash().equals(hash));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.codec;
+
+import com.bytabit.app.core.common.json.DateConverter;
+import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+import com.bytabit.app.core.trade.model.Trade;
+import com.bytabit.app.core.trade.model.TradeRequest;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class TestBinaryCodec {
+
+    private final BinaryCodec binaryCodec = new BinaryCodec();
+
+    private final Gson prettyGson = new GsonBuilder()
+            .setPrettyPrinting()
+            .registerTypeAdapter(Date.class, new DateConverter())
+            .create();
+
+    @Test
+    public void whenEncodedTrade_returnSameTrade() {
+
+        Trade trade = trade();
+
+        byte[] encoded = binaryCodec.encode(trade);
+        Trade decoded = binaryCodec.decode(encoded, Trade.class);
+
+        log.debug("binary size: {}, json size: {}", encoded.length, prettyGson.toJson(trade).length());
+        assert (BinaryCodec.isBinary(encoded));
+        assert (trade.equals(decoded));
+        assert (trade.getCreatedTimestamp().equals(decoded.getCreatedTimestamp()));
+        assert (decoded.getOffer().getPrice().scale() == 2);
+        assert (encoded.length < prettyGson.toJson(trade).length());
+    }
+
+    @Test
+    public void whenJsonTrade_returnSameTrade() {
+
+        Trade trade = trade();
+
+        byte[] json = prettyGson.toJson(trade).getBytes(StandardCharsets.UTF_8);
+        Trade decoded = binaryCodec.decode(json, Trade.class);
+
+        assert (trade.equals(decoded));
+    }
+
+    @Test
+    public void whenTruncated_throwCodecException() {
+
+        byte[] encoded = binaryCodec.encode(trade());
+
+        assert (failsToDecode(Arrays.copyOf(encoded, encoded.length / 2)));
+    }
+
+    @Test
+    public void whenNegativeLength_throwCodecException() {
+
+        // object with one member whose name length is -1
+        byte[] data = {(byte) 0xBB, 0x01, 7, 1,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+
+        assert (failsToDecode(data));
+    }
+
+    @Test
+    public void whenOversizedLength_throwCodecException() {
+
+        // object with 2^35 members
+        byte[] data = {(byte) 0xBB, 0x01, 7, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+
+        assert (failsToDecode(data));
+    }
+
+    private boolean failsToDecode(byte[] data) {
+        try {
+            binaryCodec.decode(data, Trade.class);
+            return false;
+        } catch (CodecException ce) {
+            log.debug("decode error: {}", ce.getMessage());
+            return true;
+        }
+    }
+
+    private Trade trade() {
+
+        Offer offer = Offer.builder()
+                .id(UUID.randomUUID().toString())
+                .offerType(Offer.OfferType.SELL)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.EUR)
+                .paymentMethod(PaymentMethod.SEPA)
+                .minAmount(new BigDecimal("10.00"))
+                .maxAmount(new BigDecimal("100.00"))
+                .price(new BigDecimal("9000.50"))
+                .build();
+
+        TradeRequest tradeRequest = TradeRequest.builder()
+                .takerProfilePubKey("testTakerProfilePubKey")
+                .takerEscrowPubKey("testTakerEscrowPubKey")
+                .btcAmount(new BigDecimal("0.00270732"))
+                .paymentAmount(new BigDecimal("24.37"))
+                .build();
+
+        return Trade.builder()
+                .id(UUID.randomUUID().toString())
+                .version(12L)
+                .status(Trade.Status.CREATED)
+                .role(Trade.Role.BUYER)
+                .createdTimestamp(new Date())
+                .offer(offer)
+                .tradeRequest(tradeRequest)
+                .build();
+    }
+}
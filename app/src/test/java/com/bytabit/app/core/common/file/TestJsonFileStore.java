@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.file;
+
+import com.bytabit.app.core.common.json.GsonFactory;
+import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class TestJsonFileStore {
+
+    private final File filesDir = new File("/tmp/bytabit/jsonfilestore/");
+
+    @Before
+    public void deleteFiles() {
+        filesDir.mkdirs();
+        for (File file : filesDir.listFiles()) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void whenManyEntities_loadAllInIdOrder() {
+
+        JsonFileStore<Offer> store = new JsonFileStore<>(filesDir, Offer.class, GsonFactory.create());
+
+        List<Offer> offers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            offers.add(offer(BigDecimal.valueOf(100000 + i)));
+        }
+        store.writeAll(offers);
+
+        long start = System.currentTimeMillis();
+        List<Offer> loaded = new JsonFileStore<>(filesDir, Offer.class, GsonFactory.create()).loadAll();
+        log.debug("loaded {} entities in {} ms", loaded.size(), System.currentTimeMillis() - start);
+
+        assert (loaded.size() == offers.size());
+        for (int i = 1; i < loaded.size(); i++) {
+            assert (loaded.get(i - 1).getId().compareTo(loaded.get(i).getId()) < 0);
+        }
+        assert (loaded.containsAll(offers));
+    }
+
+    private Offer offer(BigDecimal price) {
+        return Offer.builder()
+                .id(UUID.randomUUID().toString())
+                .offerType(Offer.OfferType.SELL)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .minAmount(BigDecimal.valueOf(100.00))
+                .maxAmount(BigDecimal.valueOf(1000.00))
+                .price(price)
+                .build();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.file;
+
+import com.bytabit.app.core.common.codec.BinaryCodec;
+import com.bytabit.app.core.common.codec.Codec;
+import com.bytabit.app.core.common.json.DateConverter;
+import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class TestLogFileStore {
+
+    private final File filesDir = new File("/tmp/bytabit/logfilestore/");
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(Date.class, new DateConverter())
+            .create();
+
+    @Before
+    public void deleteFiles() {
+        filesDir.mkdirs();
+        for (File file : filesDir.listFiles()) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void whenReopened_returnLatestEntities() {
+
+        LogFileStore<Offer> store = new LogFileStore<>(filesDir, Offer.class, new BinaryCodec(), gson);
+        assert (store.loadAll().isEmpty());
+
+        Offer offer1 = offer(BigDecimal.valueOf(100000));
+        Offer offer2 = offer(BigDecimal.valueOf(110000));
+        store.write(offer1);
+        store.write(offer2);
+        offer1.setPrice(BigDecimal.valueOf(120000));
+        store.write(offer1);
+        store.delete(offer2.getId());
+
+        List<Offer> loaded = new LogFileStore<>(filesDir, Offer.class, new BinaryCodec(), gson).loadAll();
+
+        assert (loaded.size() == 1);
+        assert (loaded.get(0).getId().equals(offer1.getId()));
+        assert (loaded.get(0).getPrice().compareTo(BigDecimal.valueOf(120000)) == 0);
+    }
+
+    @Test
+    public void whenTailIncomplete_returnCommittedEntities() throws Exception {
+
+        LogFileStore<Offer> store = new LogFileStore<>(filesDir, Offer.class, new BinaryCodec(), gson);
+        store.loadAll();
+        Offer offer1 = offer(BigDecimal.valueOf(100000));
+        store.write(offer1);
+        store.write(offer(BigDecimal.valueOf(110000)));
+
+        // simulate crash in the middle of appending the last record
+        File logFile = new File(filesDir, LogFileStore.LOG_FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+
+        List<Offer> loaded = new LogFileStore<>(filesDir, Offer.class, new BinaryCodec(), gson).loadAll();
+
+        assert (loaded.size() == 1);
+        assert (loaded.get(0).getId().equals(offer1.getId()));
+    }
+
+    @Test
+    public void whenMiddleRecordCorrupt_skipRecordAndKeepLaterEntities() throws Exception {
+
+        LogFileStore<Offer> store = new LogFileStore<>(filesDir, Offer.class, new BinaryCodec(), gson);
+        store.loadAll();
+        Offer offer1 = offer(BigDecimal.valueOf(100000));
+        Offer offer2 = offer(BigDecimal.valueOf(110000));
+        Offer offer3 = offer(BigDecimal.valueOf(120000));
+        store.write(offer1);
+        store.write(offer2);
+        store.write(offer3);
+
+        // flip a byte in the body of the second record
+        File logFile = new File(filesDir, LogFileStore.LOG_FILE_NAME);
+        long fileLength;
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            fileLength = raf.length();
+            long secondOffset = 8 + raf.readInt();
+            raf.seek(secondOffset + 8 + 10);
+            byte b = raf.readByte();
+            raf.seek(secondOffset + 8 + 10);
+            raf.writeByte(b ^ 0xff);
+        }
+
+        List<Offer> loaded = new LogFileStore<>(filesDir, Offer.class, new BinaryCodec(), gson).loadAll();
+
+        assert (loaded.size() == 2);
+        assert (loaded.get(0).getId().equals(offer1.getId()));
+        assert (loaded.get(1).getId().equals(offer3.getId()));
+        assert (logFile.length() == fileLength);
+    }
+
+    @Test
+    public void whenRecordUndecodable_returnOtherEntities() {
+
+        Offer offer1 = offer(BigDecimal.valueOf(100000));
+        Offer offer2 = offer(BigDecimal.valueOf(110000));
+
+        // writes offer2 in a format the binary codec can't read
+        BinaryCodec binaryCodec = new BinaryCodec();
+        Codec codec = new Codec() {
+            @Override
+            public byte[] encode(Object value) {
+                return value == offer2 ? "{not json".getBytes() : binaryCodec.encode(value);
+            }
+
+            @Override
+            public <T> T decode(byte[] data, Class<T> type) {
+                return binaryCodec.decode(data, type);
+            }
+        };
+        LogFileStore<Offer> store = new LogFileStore<>(filesDir, Offer.class, codec, gson);
+        store.loadAll();
+        store.write(offer1);
+        store.write(offer2);
+
+        List<Offer> loaded = new LogFileStore<>(filesDir, Offer.class, new BinaryCodec(), gson).loadAll();
+
+        assert (loaded.size() == 1);
+        assert (loaded.get(0).getId().equals(offer1.getId()));
+    }
+
+    @Test
+    public void whenJsonFileUnreadable_keepFileAfterImport() throws Exception {
+
+        Offer offer1 = offer(BigDecimal.valueOf(100000));
+        new JsonFileStore<>(filesDir, Offer.class, gson).write(offer1);
+        File unreadable = new File(filesDir, "unreadable" + JsonFileStore.JSON_EXT);
+        try (FileOutputStream fos = new FileOutputStream(unreadable)) {
+            fos.write("{not json".getBytes());
+        }
+
+        List<Offer> loaded = new LogFileStore<>(filesDir, Offer.class, new BinaryCodec(), gson).loadAll();
+
+        assert (loaded.size() == 1);
+        assert (loaded.get(0).getId().equals(offer1.getId()));
+        assert (unreadable.exists());
+        assert (!new File(filesDir, offer1.getId() + JsonFileStore.JSON_EXT).exists());
+    }
+
+    private Offer offer(BigDecimal price) {
+        return Offer.builder()
+                .id(UUID.randomUUID().toString())
+                .offerType(Offer.OfferType.SELL)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .minAmount(BigDecimal.valueOf(100.00))
+                .maxAmount(BigDecimal.valueOf(1000.00))
+                .price(price)
+                .build();
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.json;
+
+import com.bytabit.app.core.badge.model.Badge;
+import com.bytabit.app.core.badge.model.BadgeRequest;
+import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.offer.model.OfferChanges;
+import com.bytabit.app.core.offer.model.SignedOffer;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentDetails;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+import com.bytabit.app.core.trade.model.ArbitrateRequest;
+import com.bytabit.app.core.trade.model.CancelCompleted;
+import com.bytabit.app.core.trade.model.PaymentRequest;
+import com.bytabit.app.core.trade.model.PayoutCompleted;
+import com.bytabit.app.core.trade.model.PayoutRequest;
+import com.bytabit.app.core.trade.model.SignedTrade;
+import com.bytabit.app.core.trade.model.Trade;
+import com.bytabit.app.core.trade.model.TradeAcceptance;
+import com.bytabit.app.core.trade.model.TradeRequest;
+import com.bytabit.app.core.trade.model.TradeServiceResource;
+import com.bytabit.app.core.trade.model.TradeVersion;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class TestGsonFactory {
+
+    private final Gson gson = GsonFactory.create();
+
+    // final fields are derived or cached values the adapters don't write
+    private final Gson reflectiveGson = new GsonBuilder()
+            .excludeFieldsWithModifiers(Modifier.STATIC, Modifier.TRANSIENT, Modifier.FINAL)
+            .registerTypeAdapter(Date.class, new DateConverter())
+            .create();
+
+    // every model with a streaming type adapter
+    private static final Class<?>[] ADAPTED_TYPES = {
+            Badge.class, BadgeRequest.class, Offer.class, SignedOffer.class, OfferChanges.class,
+            PaymentDetails.class, Trade.class, SignedTrade.class, TradeRequest.class, TradeAcceptance.class,
+            PaymentRequest.class, PayoutRequest.class, ArbitrateRequest.class, PayoutCompleted.class,
+            CancelCompleted.class, TradeServiceResource.class, TradeVersion.class
+    };
+
+    @Test
+    public void whenSignedTradeToJson_returnSameJsonAsReflection() {
+
+        SignedTrade signedTrade = signedTrade();
+
+        String json = gson.toJson(signedTrade);
+        log.debug("json: {}", json);
+
+        assert (json.equals(reflectiveGson.toJson(signedTrade)));
+    }
+
+    @Test
+    public void whenSignedTradeFromJson_returnSameAsReflection() {
+
+        SignedTrade signedTrade = signedTrade();
+
+        String json = reflectiveGson.toJson(signedTrade);
+        SignedTrade decoded = gson.fromJson(json, SignedTrade.class);
+
+        assert (decoded.equals(reflectiveGson.fromJson(json, SignedTrade.class)));
+        assert (decoded.getSignature().equals(signedTrade.getSignature()));
+        assert (decoded.getTradeRequest().equals(signedTrade.getTradeRequest()));
+        assert (decoded.getPaymentRequest().getTxFeePerKb().equals(new BigDecimal("0.00010000")));
+    }
+
+    @Test
+    public void whenUnknownEnumConstant_returnNullLikeReflection() {
+
+        String json = reflectiveGson.toJson(signedTrade()).replace("\"FUNDING\"", "\"NEWER_STATUS\"");
+        SignedTrade decoded = gson.fromJson(json, SignedTrade.class);
+
+        assert (decoded.getStatus() == null);
+        assert (reflectiveGson.fromJson(json, SignedTrade.class).getStatus() == null);
+        assert (decoded.getRole().equals(Trade.Role.SELLER));
+    }
+
+    @Test
+    public void whenAllFieldsSet_adaptersWriteAndReadSameJsonAsReflection() throws Exception {
+
+        JsonParser parser = new JsonParser();
+        for (Class<?> type : ADAPTED_TYPES) {
+            Object value = sample(type);
+
+            JsonElement expected = parser.parse(reflectiveGson.toJson(value));
+            JsonElement written = parser.parse(gson.toJson(value));
+            JsonElement read = parser.parse(reflectiveGson.toJson(gson.fromJson(expected, type)));
+
+            log.debug("{}: {}", type.getSimpleName(), expected);
+            assert written.equals(expected) : type.getSimpleName() + " written as " + written;
+            assert read.equals(expected) : type.getSimpleName() + " read as " + read;
+        }
+    }
+
+    // instance with every serialized field set, so fields added to a model without updating its adapter are caught
+    private Object sample(Class<?> type) throws Exception {
+
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object value = constructor.newInstance();
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT | Modifier.FINAL)) == 0) {
+                    field.setAccessible(true);
+                    field.set(value, sampleValue(field.getType(), field.getGenericType(), field.getName()));
+                }
+            }
+        }
+        return value;
+    }
+
+    private Object sampleValue(Class<?> type, Type genericType, String name) throws Exception {
+
+        if (type == String.class) {
+            return name + "Value";
+        } else if (type == Long.class || type == long.class) {
+            return 7L;
+        } else if (type == Integer.class || type == int.class) {
+            return 3;
+        } else if (type == Boolean.class || type == boolean.class) {
+            return true;
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal("12.3400");
+        } else if (type == Date.class) {
+            return new Date(1546300800123L);
+        } else if (type.isEnum()) {
+            Object[] constants = type.getEnumConstants();
+            return constants[constants.length - 1];
+        } else if (type == List.class) {
+            Type itemType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            List<Object> list = new ArrayList<>();
+            list.add(sampleValue((Class<?>) itemType, itemType, name));
+            return list;
+        } else {
+            return sample(type);
+        }
+    }
+
+    private SignedTrade signedTrade() {
+
+        SignedOffer offer = SignedOffer.signedBuilder()
+                .id(UUID.randomUUID().toString())
+                .offerType(Offer.OfferType.BUY)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .minAmount(new BigDecimal("100.00"))
+                .maxAmount(new BigDecimal("1000.00"))
+                .price(new BigDecimal("95000.00"))
+                .signature("testOfferSignature")
+                .build();
+
+        TradeRequest tradeRequest = TradeRequest.builder()
+                .takerProfilePubKey("testTakerProfilePubKey")
+                .takerEscrowPubKey("testTakerEscrowPubKey")
+                .btcAmount(new BigDecimal("0.00270732"))
+                .paymentAmount(new BigDecimal("257.20"))
+                .build();
+
+        TradeAcceptance tradeAcceptance = TradeAcceptance.builder()
+                .makerEscrowPubKey("testMakerEscrowPubKey")
+                .arbitratorProfilePubKey("testArbitratorProfilePubKey")
+                .escrowAddress("testEscrowAddress")
+                .build();
+
+        PaymentRequest paymentRequest = PaymentRequest.builder()
+                .fundingTxHash("testFundingTxHash")
+                .paymentDetails("testPaymentDetails")
+                .refundAddress("testRefundAddress")
+                .refundTxSignature("testRefundTxSignature")
+                .txFeePerKb(new BigDecimal("0.00010000"))
+                .build();
+
+        return SignedTrade.signedBuilder()
+                .id(UUID.randomUUID().toString())
+                .version(3L)
+                .status(Trade.Status.FUNDING)
+                .role(Trade.Role.SELLER)
+                .createdTimestamp(new Date())
+                .offer(offer)
+                .tradeRequest(tradeRequest)
+                .tradeAcceptance(tradeAcceptance)
+                .paymentRequest(paymentRequest)
+                .signature("testTradeSignature")
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.common.net;
+
+import com.bytabit.app.core.common.AppConfig;
+import com.bytabit.app.core.common.json.GsonFactory;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Single;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+
+@Slf4j
+public class TestRetrofitService {
+
+    private MockWebServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void whenNotModified_returnCopyOfCachedValueWithoutVerify() throws Exception {
+
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("[\"a\",\"b\"]"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        TestService testService = new TestService(server.url("/").toString());
+
+        List<String> first = testService.getItems().blockingGet();
+        // changes to a returned value don't reach the cache
+        first.set(0, "changed");
+        List<String> second = testService.getItems().blockingGet();
+
+        assert (first.size() == 2);
+        assert (second != first);
+        assert (second.get(0).equals("a"));
+        assert (testService.verifyCount.get() == 1);
+        assert (server.takeRequest().getHeader("If-None-Match") == null);
+        assert (server.takeRequest().getHeader("If-None-Match").equals("\"v1\""));
+    }
+
+    interface TestApi {
+
+        @GET("/items")
+        Single<Response<List<String>>> getItems(@Header("If-None-Match") String eTag);
+    }
+
+    private static class TestService extends RetrofitService {
+
+        private final TestApi testApi;
+
+        private final AtomicInteger verifyCount = new AtomicInteger();
+
+        private TestService(String baseUrl) {
+            super(new AppConfig(new File("/tmp/bytabit"), "test", "regtest", "test", baseUrl, "null", "null"),
+                    new OkHttpClient(), GsonFactory.create());
+            testApi = retrofit.create(TestApi.class);
+        }
+
+        private Single<List<String>> getItems() {
+            return conditionalGet("/items", new TypeToken<List<String>>() {
+            }.getType(), testApi::getItems, items -> {
+                verifyCount.incrementAndGet();
+                return Single.just(items);
+            });
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.offer.manager;
+
+import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.offer.model.OfferChange;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class TestOrderBook {
+
+    @Test
+    public void whenOffersAdded_returnBestPriceFirst() {
+
+        OrderBook orderBook = new OrderBook();
+        Offer sell1 = offer(Offer.OfferType.SELL, "9000.00", "10.00", "100.00");
+        Offer sell2 = offer(Offer.OfferType.SELL, "8500.00", "10.00", "100.00");
+        Offer buy1 = offer(Offer.OfferType.BUY, "8000.00", "10.00", "100.00");
+        Offer buy2 = offer(Offer.OfferType.BUY, "8200.00", "10.00", "100.00");
+        orderBook.put(sell1);
+        orderBook.put(sell2);
+        orderBook.put(buy1);
+        orderBook.put(buy2);
+
+        assert (orderBook.getBest(CurrencyCode.EUR, PaymentMethod.SEPA, Offer.OfferType.SELL).equals(sell2));
+        assert (orderBook.getBest(CurrencyCode.EUR, PaymentMethod.SEPA, Offer.OfferType.BUY).equals(buy2));
+        assert (orderBook.getBest(CurrencyCode.EUR, PaymentMethod.MG, Offer.OfferType.BUY) == null);
+
+        List<Offer> upToPrice = orderBook.getOffersUpToPrice(CurrencyCode.EUR, PaymentMethod.SEPA,
+                Offer.OfferType.SELL, new BigDecimal("8999"));
+        assert (upToPrice.size() == 1 && upToPrice.get(0).equals(sell2));
+
+        // replacing an offer moves it to its new price
+        sell1.setPrice(new BigDecimal("8000.00"));
+        orderBook.put(sell1);
+        assert (orderBook.getBest(CurrencyCode.EUR, PaymentMethod.SEPA, Offer.OfferType.SELL).equals(sell1));
+        assert (orderBook.size() == 4);
+
+        orderBook.remove(sell1.getId());
+        assert (orderBook.getOffers(CurrencyCode.EUR, PaymentMethod.SEPA, Offer.OfferType.SELL).size() == 1);
+    }
+
+    @Test
+    public void whenBtcAmount_returnFillableOffers() {
+
+        OrderBook orderBook = new OrderBook();
+        Offer small = offer(Offer.OfferType.SELL, "9000.00", "10.00", "20.00");
+        Offer large = offer(Offer.OfferType.SELL, "9500.00", "50.00", "100.00");
+        orderBook.put(small);
+        orderBook.put(large);
+
+        // 0.002 btc is 18.00 eur at the small offer price and 19.00 eur at the large offer price
+        List<Offer> fillable = orderBook.getFillable(CurrencyCode.EUR, PaymentMethod.SEPA,
+                Offer.OfferType.SELL, new BigDecimal("0.002"));
+        assert (fillable.size() == 1 && fillable.get(0).equals(small));
+
+        // 0.006 btc is 54.00 eur and 57.00 eur
+        fillable = orderBook.getFillable(CurrencyCode.EUR, PaymentMethod.SEPA,
+                Offer.OfferType.SELL, new BigDecimal("0.006"));
+        assert (fillable.size() == 1 && fillable.get(0).equals(large));
+
+        // my own offers are excluded
+        fillable = orderBook.getFillable(CurrencyCode.EUR, PaymentMethod.SEPA,
+                Offer.OfferType.SELL, new BigDecimal("0.006"), "testMakerProfilePubKey", 10);
+        assert (fillable.isEmpty());
+    }
+
+    @Test
+    public void whenSnapshotApplied_removeOffersNotInSnapshot() {
+
+        OrderBook orderBook = new OrderBook();
+        Offer kept = offer(Offer.OfferType.SELL, "9000.00", "10.00", "100.00");
+        Offer stale = offer(Offer.OfferType.SELL, "9100.00", "10.00", "100.00");
+        orderBook.put(kept);
+        orderBook.put(stale);
+
+        Offer added = offer(Offer.OfferType.BUY, "8000.00", "10.00", "100.00");
+
+        // changes only remove offers that are listed as deleted
+        List<OfferChange> changes = orderBook.apply(Arrays.asList(kept, added), Collections.<String>emptyList(), false);
+        assert (changes.size() == 1);
+        assert (changes.get(0).getType() == OfferChange.Type.UPDATED && changes.get(0).getId().equals(added.getId()));
+        assert (orderBook.size() == 3);
+
+        changes = orderBook.apply(Arrays.asList(kept, added), Collections.<String>emptyList(), true);
+        assert (changes.size() == 1);
+        assert (changes.get(0).getType() == OfferChange.Type.DELETED && changes.get(0).getId().equals(stale.getId()));
+        assert (orderBook.size() == 2);
+        assert (orderBook.get(stale.getId()) == null);
+        assert (orderBook.get(kept.getId()) != null);
+    }
+
+    private Offer offer(Offer.OfferType offerType, String price, String minAmount, String maxAmount) {
+        return Offer.builder()
+                .id(UUID.randomUUID().toString())
+                .offerType(offerType)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.EUR)
+                .paymentMethod(PaymentMethod.SEPA)
+                .minAmount(new BigDecimal(minAmount))
+                .maxAmount(new BigDecimal(maxAmount))
+                .price(new BigDecimal(price))
+                .build();
+    }
+}
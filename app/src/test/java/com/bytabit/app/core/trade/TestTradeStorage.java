@@ -32,6 +32,7 @@ import org.junit.Test;
 import java.io.File;
 import java.math.BigDecimal;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import lombok.extern.slf4j.Slf4j;
@@ -122,4 +123,72 @@ public class TestTradeStorage {
         log.debug("Written trade: {}", readTrade);
         log.debug("Read trade: {}", readTrade);
     }
+
+    @Test
+    public void whenTradeUpdatedOrDeleted_reindexStatusRoleAndOfferId() {
+
+        Offer offer = offer();
+        Trade trade = trade(offer, Trade.Status.CREATED, Trade.Role.BUYER);
+        tradeStorage.write(trade).blockingGet();
+
+        assert (containsId(tradeStorage.findByStatusIn(Trade.Status.CREATED).blockingGet(), trade.getId()));
+        assert (containsId(tradeStorage.findByRole(Trade.Role.BUYER).blockingGet(), trade.getId()));
+        assert (tradeStorage.findByOfferId(offer.getId()).blockingGet().size() == 1);
+
+        Offer otherOffer = offer();
+        Trade updated = trade.copyBuilder().status(Trade.Status.FUNDED).role(Trade.Role.SELLER)
+                .offer(otherOffer).build();
+        tradeStorage.write(updated).blockingGet();
+
+        assert (!containsId(tradeStorage.findByStatusIn(Trade.Status.CREATED).blockingGet(), trade.getId()));
+        assert (containsId(tradeStorage.findByStatusIn(Trade.Status.FUNDED).blockingGet(), trade.getId()));
+        assert (!containsId(tradeStorage.findByRole(Trade.Role.BUYER).blockingGet(), trade.getId()));
+        assert (containsId(tradeStorage.findByRole(Trade.Role.SELLER).blockingGet(), trade.getId()));
+        assert (tradeStorage.findByOfferId(offer.getId()).blockingGet().isEmpty());
+        assert (tradeStorage.findByOfferId(otherOffer.getId()).blockingGet().size() == 1);
+
+        tradeStorage.delete(trade.getId()).blockingGet();
+
+        assert (!containsId(tradeStorage.findByStatusIn(Trade.Status.FUNDED).blockingGet(), trade.getId()));
+        assert (!containsId(tradeStorage.findByRole(Trade.Role.SELLER).blockingGet(), trade.getId()));
+        assert (tradeStorage.findByOfferId(otherOffer.getId()).blockingGet().isEmpty());
+    }
+
+    private static boolean containsId(List<Trade> trades, String id) {
+        for (Trade trade : trades) {
+            if (trade.getId().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Offer offer() {
+        return Offer.builder()
+                .id(UUID.randomUUID().toString())
+                .offerType(Offer.OfferType.SELL)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .minAmount(BigDecimal.valueOf(100.00))
+                .maxAmount(BigDecimal.valueOf(1000.00))
+                .price(BigDecimal.valueOf(123000.00))
+                .build();
+    }
+
+    private Trade trade(Offer offer, Trade.Status status, Trade.Role role) {
+        return Trade.builder()
+                .id(UUID.randomUUID().toString())
+                .status(status)
+                .role(role)
+                .createdTimestamp(new Date())
+                .offer(offer)
+                .tradeRequest(TradeRequest.builder()
+                        .takerProfilePubKey("testTakerProfilePubKey")
+                        .takerEscrowPubKey("testTakerEscrowPubKey")
+                        .btcAmount(BigDecimal.valueOf(.10))
+                        .paymentAmount(BigDecimal.valueOf(123000.00 * .10))
+                        .build())
+                .build();
+    }
 }
\ No newline at end of file
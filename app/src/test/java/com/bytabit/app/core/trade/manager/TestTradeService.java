@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.trade.manager;
+
+import com.bytabit.app.core.common.AppConfig;
+import com.bytabit.app.core.common.CryptoUtils;
+import com.bytabit.app.core.common.codec.JsonCodec;
+import com.bytabit.app.core.common.json.GsonFactory;
+import com.bytabit.app.core.offer.model.Offer;
+import com.bytabit.app.core.offer.model.SignedOffer;
+import com.bytabit.app.core.payment.model.CurrencyCode;
+import com.bytabit.app.core.payment.model.PaymentMethod;
+import com.bytabit.app.core.trade.model.SignedTrade;
+import com.bytabit.app.core.trade.model.Trade;
+import com.bytabit.app.core.trade.model.TradeRequest;
+import com.bytabit.app.core.trade.model.TradeServiceResource;
+import com.bytabit.app.core.wallet.manager.WalletManager;
+import com.google.gson.Gson;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+import io.reactivex.Maybe;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+@Slf4j
+public class TestTradeService {
+
+    private final Gson gson = GsonFactory.create();
+
+    private final ECKey profileKey = new ECKey();
+
+    private MockWebServer server;
+
+    private CryptoUtils cryptoUtils;
+
+    private TestWalletManager walletManager;
+
+    private TradeService tradeService;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        AppConfig appConfig = new AppConfig(new File("/tmp/bytabit"), "test", "regtest", "test",
+                server.url("/").toString(), "null", "null");
+        cryptoUtils = new CryptoUtils();
+        walletManager = new TestWalletManager(appConfig, profileKey);
+        tradeService = new TradeService(appConfig, new OkHttpClient(), gson, walletManager, cryptoUtils);
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void whenTradesReceived_verifyOnComputationAndSortNullVersionFirst() throws Exception {
+
+        List<TradeServiceResource> resources = new ArrayList<>();
+        resources.add(resource(3L, cryptoUtils.encrypt(profileKey, new JsonCodec(gson).encode(signedTrade()))));
+        resources.add(resource(null, cryptoUtils.encrypt(profileKey, new JsonCodec(gson).encode(signedTrade()))));
+        resources.add(resource(4L, "notEncrypted"));
+        resources.add(resource(2L, cryptoUtils.encrypt(profileKey, new JsonCodec(gson).encode(signedTrade()))));
+        server.enqueue(new MockResponse().setBody(gson.toJson(resources)));
+
+        List<SignedTrade> received = tradeService.get("testTradeId", 1L).blockingGet();
+
+        // the resource that can't be decrypted is dropped
+        assert (received.size() == 3);
+        assert (received.get(0).getVersion() == null);
+        assert (received.get(1).getVersion() == 2L);
+        assert (received.get(2).getVersion() == 3L);
+
+        assert (walletManager.verifyThreads.size() >= 1);
+        for (String verifyThread : walletManager.verifyThreads) {
+            assert (verifyThread.startsWith("RxComputationThreadPool"));
+        }
+    }
+
+    private TradeServiceResource resource(Long version, String trade) {
+        return TradeServiceResource.builder()
+                .version(version)
+                .trade(trade)
+                .build();
+    }
+
+    private SignedTrade signedTrade() {
+
+        SignedOffer offer = SignedOffer.signedBuilder()
+                .id(UUID.randomUUID().toString())
+                .offerType(Offer.OfferType.BUY)
+                .makerProfilePubKey("testMakerProfilePubKey")
+                .currencyCode(CurrencyCode.SEK)
+                .paymentMethod(PaymentMethod.SWISH)
+                .minAmount(new BigDecimal("100.00"))
+                .maxAmount(new BigDecimal("1000.00"))
+                .price(new BigDecimal("95000.00"))
+                .signature("testOfferSignature")
+                .build();
+
+        TradeRequest tradeRequest = TradeRequest.builder()
+                .takerProfilePubKey("testTakerProfilePubKey")
+                .takerEscrowPubKey("testTakerEscrowPubKey")
+                .btcAmount(new BigDecimal("0.00270732"))
+                .paymentAmount(new BigDecimal("257.20"))
+                .build();
+
+        return SignedTrade.signedBuilder()
+                .id(UUID.randomUUID().toString())
+                .status(Trade.Status.CREATED)
+                .role(Trade.Role.SELLER)
+                .createdTimestamp(new Date())
+                .offer(offer)
+                .tradeRequest(tradeRequest)
+                .signature("testTradeSignature")
+                .build();
+    }
+
+    // accepts every signature and records the threads signatures are verified on
+    private static class TestWalletManager extends WalletManager {
+
+        private final ECKey profileKey;
+
+        private final Set<String> verifyThreads = Collections.synchronizedSet(new HashSet<String>());
+
+        private TestWalletManager(AppConfig appConfig, ECKey profileKey) {
+            super(appConfig, Executors.newSingleThreadExecutor());
+            this.profileKey = profileKey;
+        }
+
+        @Override
+        public Maybe<ECKey> getProfileECKey() {
+            return Maybe.just(profileKey);
+        }
+
+        @Override
+        public boolean validateBase58PubKeySignature(String pubKey, String signature, Sha256Hash hash) {
+            verifyThreads.add(Thread.currentThread().getName());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bytabit.app.core.trade.manager;
+
+import com.bytabit.app.core.common.json.GsonFactory;
+import com.bytabit.app.core.trade.model.TradeServiceResource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.observers.TestObserver;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@Slf4j
+public class TestTradeSubscription {
+
+    private MockWebServer server;
+
+    private TradeSubscription tradeSubscription;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        tradeSubscription = new TradeSubscription(server.url("/").toString(), GsonFactory.create(),
+                new OkHttpClient.Builder().readTimeout(5, TimeUnit.SECONDS).build(), 100, 200, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void shutdownServer() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void whenTradesPushed_pollFromLatestVersion() throws Exception {
+
+        server.enqueue(new MockResponse().setBody("[{\"version\":5,\"trade\":\"a\"}]"));
+        server.enqueue(new MockResponse().setBody("[]"));
+        server.enqueue(new MockResponse().setBody("[{\"version\":6,\"trade\":\"b\"},{\"version\":7,\"trade\":\"c\"}]"));
+
+        List<List<TradeServiceResource>> received = tradeSubscription.subscribe("testProfilePubKey", 3)
+                .take(2)
+                .toList()
+                .blockingGet();
+
+        assert (received.size() == 2);
+        assert (received.get(0).get(0).getTrade().equals("a"));
+        assert (received.get(1).size() == 2);
+
+        RecordedRequest first = server.takeRequest();
+        assert (first.getPath().equals("/trades/subscribe?profilePubKey=testProfilePubKey&version=3"));
+        assert (server.takeRequest().getPath().endsWith("version=5"));
+        assert (server.takeRequest().getPath().endsWith("version=5"));
+    }
+
+    @Test
+    public void whenPollFails_reconnect() throws Exception {
+
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("[{\"version\":8,\"trade\":\"a\"}]"));
+
+        TestObserver<Boolean> connected = tradeSubscription.isConnected().test();
+
+        List<TradeServiceResource> received = tradeSubscription.subscribe("testProfilePubKey", 7)
+                .blockingFirst();
+
+        assert (received.get(0).getVersion() == 8);
+        assert (server.getRequestCount() == 2);
+        connected.assertValues(false, true, false);
+    }
+
+    @Test
+    public void whenPollReturnsRightAway_waitMinPollInterval() throws Exception {
+
+        server.enqueue(new MockResponse().setBody("[]"));
+        server.enqueue(new MockResponse().setBody("[]"));
+        server.enqueue(new MockResponse().setBody("[{\"version\":8,\"trade\":\"a\"}]"));
+
+        long start = System.currentTimeMillis();
+        tradeSubscription.subscribe("testProfilePubKey", 7).blockingFirst();
+
+        assert (server.getRequestCount() == 3);
+        assert (System.currentTimeMillis() - start >= 400);
+    }
+
+    @Test
+    public void whenSubscribeUnsupported_completeDisconnected() throws Exception {
+
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        TestObserver<Boolean> connected = tradeSubscription.isConnected().test();
+
+        List<List<TradeServiceResource>> received = tradeSubscription.subscribe("testProfilePubKey", 7)
+                .toList()
+                .blockingGet();
+
+        assert (received.isEmpty());
+        assert (server.getRequestCount() == 1);
+        connected.assertValues(false);
+    }
+}
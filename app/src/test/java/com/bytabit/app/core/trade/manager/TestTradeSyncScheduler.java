@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 Bytabit AB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.bytabit.app.core.trade.manager;
+
+import com.bytabit.app.core.trade.model.Trade;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.TestScheduler;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class TestTradeSyncScheduler {
+
+    private final TestScheduler timeScheduler = new TestScheduler();
+
+    private final TradeSyncScheduler tradeSyncScheduler = new TradeSyncScheduler(timeScheduler);
+
+    @Test
+    public void whenTradesUnchanged_backoffByStatusAndRole() {
+
+        Trade waiting = trade("waiting", Trade.Status.PAID, Trade.Role.BUYER);
+        Trade funding = trade("funding", Trade.Status.FUNDING, Trade.Role.SELLER);
+        Trade completed = trade("completed", Trade.Status.COMPLETED, Trade.Role.BUYER);
+        List<Trade> trades = Arrays.asList(waiting, funding, completed);
+
+        assert (tradeSyncScheduler.getDue(trades).equals(Arrays.asList(waiting, funding)));
+        assert (tradeSyncScheduler.getDue(trades).isEmpty());
+
+        // counterparty polls back off 5s, 10s, 20s
+        timeScheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+        assert (tradeSyncScheduler.getDue(trades).equals(Arrays.asList(waiting)));
+        timeScheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+        assert (tradeSyncScheduler.getDue(trades).isEmpty());
+        timeScheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+        assert (tradeSyncScheduler.getDue(trades).equals(Arrays.asList(waiting)));
+
+        // confirmation polls start at 30s
+        timeScheduler.advanceTimeBy(15, TimeUnit.SECONDS);
+        assert (tradeSyncScheduler.getDue(trades).equals(Arrays.asList(funding)));
+    }
+
+    @Test
+    public void whenWaitingOnOwnStep_capBackoffAtTwoMinutes() {
+
+        Trade trade = trade("trade", Trade.Status.FUNDED, Trade.Role.BUYER);
+        List<Trade> trades = Arrays.asList(trade);
+
+        // 60s, 120s, then stays at 120s
+        assert (tradeSyncScheduler.getDue(trades).size() == 1);
+        timeScheduler.advanceTimeBy(60, TimeUnit.SECONDS);
+        assert (tradeSyncScheduler.getDue(trades).size() == 1);
+        timeScheduler.advanceTimeBy(120, TimeUnit.SECONDS);
+        assert (tradeSyncScheduler.getDue(trades).size() == 1);
+        timeScheduler.advanceTimeBy(119, TimeUnit.SECONDS);
+        assert (tradeSyncScheduler.getDue(trades).isEmpty());
+        timeScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        assert (tradeSyncScheduler.getDue(trades).size() == 1);
+    }
+
+    @Test
+    public void whenTradeChanged_pollNow() {
+
+        Trade trade = trade("trade", Trade.Status.ACCEPTED, Trade.Role.BUYER);
+        List<Trade> trades = Arrays.asList(trade);
+        backOff(trades);
+
+        // new version with the same status
+        trade.setVersion(trade.getVersion() + 1);
+        assert (tradeSyncScheduler.getDue(trades).size() == 1);
+        backOff(trades);
+
+        // new status with the same version
+        trade.setStatus(Trade.Status.FUNDING);
+        assert (tradeSyncScheduler.getDue(trades).size() == 1);
+        assert (tradeSyncScheduler.getDue(trades).isEmpty());
+    }
+
+    @Test
+    public void whenBackoffReset_pollNow() {
+
+        Trade trade = trade("trade", Trade.Status.ACCEPTED, Trade.Role.BUYER);
+        Trade other = trade("other", Trade.Status.PAID, Trade.Role.BUYER);
+        List<Trade> trades = Arrays.asList(trade, other);
+        backOff(trades);
+
+        // a pushed change to one trade
+        tradeSyncScheduler.resetBackoff(trade.getId());
+        assert (tradeSyncScheduler.getDue(trades).equals(Arrays.asList(trade)));
+        assert (tradeSyncScheduler.getDue(trades).isEmpty());
+
+        // the subscription reconnected
+        tradeSyncScheduler.resetBackoff();
+        assert (tradeSyncScheduler.getDue(trades).equals(trades));
+    }
+
+    // poll until the trades back off to their longest interval and aren't due
+    private void backOff(List<Trade> trades) {
+        for (int i = 0; i < 6; i++) {
+            tradeSyncScheduler.getDue(trades);
+            timeScheduler.advanceTimeBy(60, TimeUnit.SECONDS);
+        }
+        tradeSyncScheduler.getDue(trades);
+        assert (tradeSyncScheduler.getDue(trades).isEmpty());
+    }
+
+    private Trade trade(String id, Trade.Status status, Trade.Role role) {
+        Trade trade = new Trade();
+        trade.setId(id);
+        trade.setVersion(1L);
+        trade.setStatus(status);
+        trade.setRole(role);
+        return trade;
+    }
+}